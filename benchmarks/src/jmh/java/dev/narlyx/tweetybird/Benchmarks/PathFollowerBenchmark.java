@@ -0,0 +1,101 @@
+package dev.narlyx.tweetybird.Benchmarks;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.narlyx.tweetybird.LogSink;
+import dev.narlyx.tweetybird.MotionProfile;
+import dev.narlyx.tweetybird.PathFollower;
+import dev.narlyx.tweetybird.Pose;
+import dev.narlyx.tweetybird.WaypointPath;
+
+/**
+ * Measures the planning work the runtime does every tick as the queue grows, with and without
+ * the trace messages a tick sends to the log, with the linear ramp or an S-curve profile, and
+ * with waypoint or pure pursuit steering.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PathFollowerBenchmark {
+
+  @Param({"2", "10", "100", "1000", "10000"})
+  public int waypoints;
+
+  @Param({"false", "true"})
+  public boolean logging;
+
+  @Param({"false", "true"})
+  public boolean profiled;
+
+  @Param({"false", "true"})
+  public boolean pursuit;
+
+  private WaypointPath path;
+  private PathFollower follower;
+  private LogSink logSink;
+  private final Pose pose = new Pose();
+
+  /**
+   * Builds a zig zag path and places the robot halfway along it
+   */
+  @Setup
+  public void setup() {
+    path = Paths.zigZag(waypoints);
+    for (int i = 0; i < waypoints/2; i++) {
+      path = path.withIncrement();
+    }
+    int index = path.getIndex();
+    pose.set((path.getX(index)+path.getX(index-1))/2, (path.getY(index)+path.getY(index-1))/2, 0.1);
+    follower = new PathFollower(1, Math.toRadians(1), 0.05, 0.1, 1,
+        profiled ? new MotionProfile(50, 50, 250) : null);
+    if (pursuit) {
+      follower.setPurePursuit(6, 18);
+    }
+    if (logging) {
+      logSink = new LogSink(4096, LogSink.OverflowPolicy.DROP, Writer.nullWriter(), null);
+    }
+  }
+
+  /**
+   * Stops the log writer thread
+   */
+  @TearDown
+  public void tearDown() {
+    if (logSink != null) {
+      logSink.close();
+    }
+  }
+
+  /**
+   * One tick of planning, plus the trace messages the runtime would log for it
+   * @return Computed speed so the work is not removed
+   */
+  @Benchmark
+  public double tick() {
+    follower.update(pose, path);
+    if (logSink != null) {
+      int index = path.getIndex();
+      logSink.publish("Robot position X:{} Y:{} Z:{}", 3, pose.getX(), pose.getY(), pose.getZ());
+      logSink.publish("Robot target position X:{} Y:{} Z:{}", 3, path.getX(index), path.getY(index), path.getZ(index));
+      logSink.publish("Distance to target: {}", 1, follower.getDistanceToTarget(), 0, 0);
+      logSink.publish("Rotation distance to target: {}", 1, follower.getRotationDistanceToTarget(), 0, 0);
+      logSink.publish("Distance to end: {}", 1, follower.getDistanceToEnd(), 0, 0);
+      logSink.publish("Distance from last: {}", 1, follower.getDistanceFromLast(), 0, 0);
+      logSink.publish("Distance between waypoints: {}", 1, follower.getDistanceBetweenWaypoints(), 0, 0);
+      logSink.publish("Distance from start: {}", 1, follower.getDistanceFromStart(), 0, 0);
+      logSink.publish("Target Heading: {}", 1, follower.getTargetHeading(), 0, 0);
+    }
+    return follower.getSpeed();
+  }
+}
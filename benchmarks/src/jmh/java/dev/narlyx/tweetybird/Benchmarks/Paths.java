@@ -0,0 +1,25 @@
+package dev.narlyx.tweetybird.Benchmarks;
+
+import dev.narlyx.tweetybird.WaypointPath;
+
+/**
+ * Shared paths used by the benchmarks.
+ */
+final class Paths {
+
+  private Paths() {
+  }
+
+  /**
+   * Builds a path that zig zags forward, so every segment has a different direction
+   * @param waypoints Number of waypoints including the starting one
+   * @return Path on its first waypoint
+   */
+  static WaypointPath zigZag(int waypoints) {
+    WaypointPath path = WaypointPath.of(0, 0, 0);
+    for (int i = 1; i < waypoints; i++) {
+      path = path.withAdded((i%2)*24, i*12, 0);
+    }
+    return path;
+  }
+}
@@ -0,0 +1,46 @@
+package dev.narlyx.tweetybird.Benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import dev.narlyx.tweetybird.Odometers.ThreeWheeledKinematics;
+
+/**
+ * Measures how many odometry updates can be done per second, without the encoder reads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ThreeWheeledKinematicsBenchmark {
+
+  private ThreeWheeledKinematics kinematics;
+  private int left, right, middle;
+
+  /**
+   * Creates the odometer with typical dead wheel measurements
+   */
+  @Setup
+  public void setup() {
+    kinematics = new ThreeWheeledKinematics(12, 6, 2.0*Math.PI*(0.945/2000));
+  }
+
+  /**
+   * One update with the robot driving forward on a slight curve
+   * @return Heading so the work is not removed
+   */
+  @Benchmark
+  public double update() {
+    left += 40;
+    right += 43;
+    middle += 2;
+    kinematics.update(left, right, middle);
+    return kinematics.getZ();
+  }
+}
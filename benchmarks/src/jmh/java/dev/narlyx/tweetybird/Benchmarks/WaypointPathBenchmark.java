@@ -0,0 +1,84 @@
+package dev.narlyx.tweetybird.Benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import dev.narlyx.tweetybird.WaypointPath;
+
+/**
+ * Measures the queue operations the runtime and OpMode perform as the queue grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WaypointPathBenchmark {
+
+  @Param({"2", "10", "100", "1000", "10000"})
+  public int waypoints;
+
+  private WaypointPath path;
+
+  /**
+   * Builds a path with the current index halfway along it
+   */
+  @Setup
+  public void setup() {
+    path = Paths.zigZag(waypoints);
+    for (int i = 0; i < waypoints/2; i++) {
+      path = path.withIncrement();
+    }
+  }
+
+  /**
+   * Building the whole path one waypoint at a time
+   * @return Built path
+   */
+  @Benchmark
+  public WaypointPath build() {
+    return Paths.zigZag(waypoints);
+  }
+
+  /**
+   * Injecting a waypoint at the current index, this copies the queue
+   * @return Next version
+   */
+  @Benchmark
+  public WaypointPath inject() {
+    return path.withInserted(path.getIndex(), 1, 2, 0);
+  }
+
+  /**
+   * Moving onto the next waypoint, done by the runtime every time a waypoint is reached
+   * @return Next version
+   */
+  @Benchmark
+  public WaypointPath increment() {
+    return path.withIncrement();
+  }
+
+  /**
+   * Dropping reached waypoints, done by the runtime when it stops
+   * @return Next version
+   */
+  @Benchmark
+  public WaypointPath clearToCurrentIndex() {
+    return path.withClearedToCurrentIndex(1, 2, 0);
+  }
+
+  /**
+   * Distance from the current waypoint to the end, read every tick
+   * @return Distance
+   */
+  @Benchmark
+  public double pathLength() {
+    return path.getPathLength(path.getIndex(), path.getSize()-1);
+  }
+}
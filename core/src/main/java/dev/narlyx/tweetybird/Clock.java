@@ -0,0 +1,13 @@
+package dev.narlyx.tweetybird;
+
+/**
+ * An interface for TweetyBird to define the time source used by the runtime,
+ * replace it to run TweetyBird on simulated time.
+ */
+public interface Clock {
+  /**
+   * Returns the current time, only the difference between two calls has any meaning
+   * @return Nanoseconds
+   */
+  long nanoTime();
+}
@@ -0,0 +1,48 @@
+package dev.narlyx.tweetybird;
+
+/**
+ * An interface for TweetyBird to define the structure of a controller class used to turn the
+ * path follower's results into the values sent to the driver. It runs every tick right after
+ * the follower updates, on the runtime thread only.
+ */
+public interface Controller {
+  /**
+   * Computes the outputs for this tick
+   * @param follower Follower that was just updated with the pose
+   * @param pose Pose the follower planned from
+   * @param velocity Field relative velocity, x and y in units per second and z in radians per
+   *                 second, null if the odometer does not provide velocity
+   * @param dt Seconds since the previous tick, zero on the first tick
+   */
+  void update(PathFollower follower, Pose pose, Pose velocity, double dt);
+
+  /**
+   * Returns the axial output for the driver
+   * @return Value from -1 to 1
+   */
+  double getAxial();
+
+  /**
+   * Returns the lateral output for the driver
+   * @return Value from -1 to 1
+   */
+  double getLateral();
+
+  /**
+   * Returns the yaw output for the driver
+   * @return Value from -1 to 1
+   */
+  double getYaw();
+
+  /**
+   * Returns the speed output for the driver
+   * @return Value from 0 to 1
+   */
+  double getSpeed();
+
+  /**
+   * Called by the runtime when the robot stops on the last waypoint, controllers that keep
+   * state between ticks should clear it here.
+   */
+  default void reset() {}
+}
@@ -0,0 +1,145 @@
+package dev.narlyx.tweetybird;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Offline decoder for files written by FlightRecorder, streams every record out as CSV or JSON.
+ * This can be run from a computer with:
+ * java dev.narlyx.tweetybird.FlightRecordExporter tweetyBirdFlight.bin [csv|json] [output]
+ */
+public class FlightRecordExporter {
+
+  private static final String[] COLUMNS = {"time", "x", "y", "z", "waypointIndex",
+      "distanceToTarget", "distanceToEnd", "distanceFromStart", "speed", "axial", "lateral", "yaw",
+      "onTarget", "onRotation", "engaged", "incremented"};
+
+  /**
+   * Supported output formats
+   */
+  public enum Format {
+    CSV,
+    JSON
+  }
+
+  /**
+   * Command line entry point
+   * @param args Input file, optional format, optional output file
+   * @throws IOException If a file can not be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: FlightRecordExporter <recording> [csv|json] [output]");
+      return;
+    }
+    Format format = args.length > 1 ? Format.valueOf(args[1].toUpperCase()) : Format.CSV;
+    Writer output = args.length > 2
+        ? new BufferedWriter(new FileWriter(args[2]))
+        : new BufferedWriter(new OutputStreamWriter(System.out));
+    try {
+      export(new File(args[0]), format, output);
+    } finally {
+      output.close();
+    }
+  }
+
+  /**
+   * Streams a recording to the passed writer
+   * @param recordFile File written by FlightRecorder
+   * @param format Output format
+   * @param output Where to write, this is flushed but not closed
+   * @return Number of records exported
+   * @throws IOException If the recording is invalid or can not be read
+   */
+  public static long export(File recordFile, Format format, Writer output) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(recordFile, "r")) {
+      MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+      // Header
+      if (file.length() < FlightRecorder.HEADER_SIZE || buffer.getInt(0) != FlightRecorder.MAGIC) {
+        throw new IOException("Not a TweetyBird flight recording");
+      }
+      if (buffer.getInt(4) != FlightRecorder.VERSION) {
+        throw new IOException("Unsupported flight recording version "+buffer.getInt(4));
+      }
+      int recordSize = buffer.getInt(8);
+      if (recordSize != FlightRecorder.RECORD_SIZE) {
+        throw new IOException("Unsupported flight recording record size "+recordSize);
+      }
+      long available = (file.length()-FlightRecorder.HEADER_SIZE)/recordSize;
+      long count = Math.max(0, Math.min(buffer.getLong(FlightRecorder.COUNT_OFFSET), available));
+
+      // Records
+      StringBuilder line = new StringBuilder(256);
+      long firstTime = count > 0 ? buffer.getLong(FlightRecorder.HEADER_SIZE) : 0;
+      if (format == Format.CSV) {
+        output.write(String.join(",", COLUMNS));
+        output.write('\n');
+      } else {
+        output.write("[\n");
+      }
+      for (long i = 0; i < count; i++) {
+        int offset = (int) (FlightRecorder.HEADER_SIZE+i*recordSize);
+        int flags = buffer.getInt(offset+64);
+        line.setLength(0);
+        line.append(format == Format.CSV ? "" : "  {");
+        appendValue(line, format, 0, (buffer.getLong(offset)-firstTime)/1e9);
+        appendValue(line, format, 1, buffer.getDouble(offset+8));
+        appendValue(line, format, 2, buffer.getDouble(offset+16));
+        appendValue(line, format, 3, buffer.getDouble(offset+24));
+        appendValue(line, format, 4, buffer.getInt(offset+32));
+        for (int column = 5; column < 12; column++) {
+          appendValue(line, format, column, buffer.getFloat(offset+36+(column-5)*4));
+        }
+        appendValue(line, format, 12, (flags & FlightRecorder.FLAG_ON_TARGET) != 0);
+        appendValue(line, format, 13, (flags & FlightRecorder.FLAG_ON_ROTATION) != 0);
+        appendValue(line, format, 14, (flags & FlightRecorder.FLAG_ENGAGED) != 0);
+        appendValue(line, format, 15, (flags & FlightRecorder.FLAG_INCREMENTED) != 0);
+        if (format == Format.JSON) {
+          line.append(i < count-1 ? "},\n" : "}\n");
+        } else {
+          line.append('\n');
+        }
+        output.append(line);
+      }
+      if (format == Format.JSON) {
+        output.write("]\n");
+      }
+      output.flush();
+      return count;
+    }
+  }
+
+  /**
+   * Appends a single value with its separator and, for JSON, its name
+   * @param line Line being built
+   * @param format Output format
+   * @param column Column index
+   * @param value Value to append
+   */
+  private static void appendValue(StringBuilder line, Format format, int column, Object value) {
+    if (column > 0) {
+      line.append(format == Format.CSV ? "," : ", ");
+    }
+    if (format == Format.JSON) {
+      line.append('"').append(COLUMNS[column]).append("\": ");
+      // JSON has no way to write NaN or infinity
+      if (value instanceof Number) {
+        double number = ((Number) value).doubleValue();
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+          value = "null";
+        }
+      }
+    }
+    line.append(value);
+  }
+}
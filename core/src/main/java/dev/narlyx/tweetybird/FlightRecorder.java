@@ -0,0 +1,128 @@
+package dev.narlyx.tweetybird;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Records one fixed width binary record per runtime tick into a memory mapped file, the file is
+ * sized once up front so recording a tick never allocates or makes a system call.
+ * Use FlightRecordExporter to turn a recording into CSV or JSON.
+ */
+public class FlightRecorder {
+
+  // File layout
+  public static final int MAGIC = 0x54424652; // "TBFR"
+  public static final int VERSION = 1;
+  public static final int HEADER_SIZE = 32;
+  public static final int RECORD_SIZE = 68;
+  static final int COUNT_OFFSET = 16;
+
+  // Record flags
+  public static final int FLAG_ON_TARGET = 1;
+  public static final int FLAG_ON_ROTATION = 1<<1;
+  public static final int FLAG_ENGAGED = 1<<2;
+  public static final int FLAG_INCREMENTED = 1<<3;
+
+  // Cache
+  private final RandomAccessFile file;
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+  private long recordCount = 0;
+  private volatile long skippedCount = 0;
+  private volatile boolean closed = false;
+
+  /**
+   * Constructor, this will create or overwrite the passed file
+   * @param recordFile File to record into
+   * @param capacity Maximum number of ticks to record
+   * @throws IOException If the file can not be created
+   */
+  public FlightRecorder(File recordFile, int capacity) throws IOException {
+    this.capacity = capacity;
+    long size = HEADER_SIZE+(long) capacity*RECORD_SIZE;
+    file = new RandomAccessFile(recordFile, "rw");
+    file.setLength(size);
+    buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+    // Header
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, RECORD_SIZE);
+    buffer.putInt(12, capacity);
+    buffer.putLong(COUNT_OFFSET, 0);
+    buffer.putLong(24, System.currentTimeMillis());
+  }
+
+  /**
+   * Records a single tick, once the file is full further ticks are counted and skipped
+   * @param time Tick start in nanoseconds from the configured clock, simulated time when the
+   *             runtime runs on a simulated clock
+   * @param pose Robot position
+   * @param waypointIndex Index of the targeted waypoint
+   * @param distanceToTarget Distance to the targeted waypoint
+   * @param distanceToEnd Distance left on the path
+   * @param distanceFromStart Distance traveled on the path
+   * @param speed Computed speed
+   * @param axial Axial output
+   * @param lateral Lateral output
+   * @param yaw Yaw output
+   * @param flags Combination of the FLAG_ constants
+   */
+  public void record(long time, Pose pose, int waypointIndex, double distanceToTarget,
+                     double distanceToEnd, double distanceFromStart, double speed,
+                     double axial, double lateral, double yaw, int flags) {
+    if (closed || recordCount >= capacity) {
+      skippedCount += 1;
+      return;
+    }
+
+    int offset = (int) (HEADER_SIZE+recordCount*RECORD_SIZE);
+    buffer.putLong(offset, time);
+    buffer.putDouble(offset+8, pose.getX());
+    buffer.putDouble(offset+16, pose.getY());
+    buffer.putDouble(offset+24, pose.getZ());
+    buffer.putInt(offset+32, waypointIndex);
+    buffer.putFloat(offset+36, (float) distanceToTarget);
+    buffer.putFloat(offset+40, (float) distanceToEnd);
+    buffer.putFloat(offset+44, (float) distanceFromStart);
+    buffer.putFloat(offset+48, (float) speed);
+    buffer.putFloat(offset+52, (float) axial);
+    buffer.putFloat(offset+56, (float) lateral);
+    buffer.putFloat(offset+60, (float) yaw);
+    buffer.putInt(offset+64, flags);
+
+    // Publishing the record only after it is complete
+    recordCount += 1;
+    buffer.putLong(COUNT_OFFSET, recordCount);
+  }
+
+  /**
+   * Returns how many ticks did not fit in the file
+   * @return Skipped tick count
+   */
+  public long getSkippedCount() {
+    return skippedCount;
+  }
+
+  /**
+   * Writes the recording to storage and closes the file, only call this once nothing is
+   * recording anymore
+   * @throws IOException If the recording could not be written or the file could not be closed
+   */
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      buffer.force();
+    } finally {
+      file.close();
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package dev.narlyx.tweetybird;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size histogram of durations in nanoseconds. Every power of two is split into 16
+ * buckets, so a percentile is accurate to within about 6%, and recording is a few arithmetic
+ * operations with no allocation. One thread records while any thread can read, reads taken
+ * while a tick is being recorded may be off by that one sample.
+ */
+public class LatencyHistogram {
+
+  // Buckets per power of two, as a number of bits
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1<<SUB_BUCKET_BITS;
+
+  // Durations longer than this are counted in the last bucket, roughly 68 seconds
+  private static final int MAX_EXPONENT = 36;
+  private static final int BUCKET_COUNT = SUB_BUCKETS+(MAX_EXPONENT-SUB_BUCKET_BITS)*SUB_BUCKETS;
+
+  // Storage
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private volatile long count = 0;
+  private volatile long total = 0;
+  private volatile long max = 0;
+
+  /**
+   * Adds a duration, only call this from one thread at a time
+   * @param nanos Duration in nanoseconds
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    int bucket = bucketOf(nanos);
+    counts.lazySet(bucket, counts.get(bucket)+1);
+    total += nanos;
+    if (nanos > max) {
+      max = nanos;
+    }
+    count += 1;
+  }
+
+  /**
+   * Returns the bucket a duration is counted in
+   * @param nanos Duration in nanoseconds
+   * @return Bucket index
+   */
+  private static int bucketOf(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) nanos;
+    }
+    int exponent = 63-Long.numberOfLeadingZeros(nanos);
+    if (exponent >= MAX_EXPONENT) {
+      return BUCKET_COUNT-1;
+    }
+    int shift = exponent-SUB_BUCKET_BITS;
+    int subBucket = (int) (nanos >>> shift)-SUB_BUCKETS;
+    return SUB_BUCKETS+shift*SUB_BUCKETS+subBucket;
+  }
+
+  /**
+   * Returns the largest duration counted in a bucket
+   * @param bucket Bucket index
+   * @return Duration in nanoseconds
+   */
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket-SUB_BUCKETS)/SUB_BUCKETS;
+    long subBucket = (bucket-SUB_BUCKETS)%SUB_BUCKETS;
+    return ((SUB_BUCKETS+subBucket+1) << shift)-1;
+  }
+
+  /**
+   * Returns the duration that the passed share of samples were at or below, the result is the
+   * top of the matching bucket but never more than the largest sample
+   * @param percentile Number from 0 to 100
+   * @return Duration in nanoseconds, zero if nothing was recorded
+   */
+  public long getPercentile(double percentile) {
+    long samples = count;
+    if (samples == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(samples*Math.min(percentile, 100)/100));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= target) {
+        return Math.min(upperBoundOf(i), max);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Returns the median duration
+   * @return Duration in nanoseconds
+   */
+  public long getMedian() {
+    return getPercentile(50);
+  }
+
+  /**
+   * Returns the average duration
+   * @return Duration in nanoseconds
+   */
+  public double getMean() {
+    long samples = count;
+    return samples > 0 ? (double) total/samples : 0;
+  }
+
+  /**
+   * Returns the longest duration recorded
+   * @return Duration in nanoseconds
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * Returns how many durations were recorded
+   * @return Sample count
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Forgets every recorded duration, samples recorded at the same moment may be lost
+   */
+  public void reset() {
+    count = 0;
+    total = 0;
+    max = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+  }
+}
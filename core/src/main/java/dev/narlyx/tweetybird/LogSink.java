@@ -0,0 +1,267 @@
+package dev.narlyx.tweetybird;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Moves log output off of the calling threads. Producers copy their message into a preallocated,
+ * bounded ring buffer without locking, and a single background thread formats the messages and
+ * writes them out in batches.
+ */
+public class LogSink implements Runnable {
+
+  /**
+   * What a producer should do when the ring buffer is full.
+   */
+  public enum OverflowPolicy {
+    /** Throw away the new message and count it as dropped, never waits */
+    DROP,
+    /** Wait for the writer thread to make room, can stall the calling thread */
+    BLOCK
+  }
+
+  // How long the writer thread sleeps when there is nothing to write
+  private static final long IDLE_NANOS = 5_000_000;
+
+  // How long a blocked producer sleeps before checking for room again
+  private static final long BLOCKED_NANOS = 100_000;
+
+  /**
+   * A preallocated slot in the ring buffer
+   */
+  private static class Record {
+    long time;
+    String format;
+    int count;
+    double a, b, c;
+  }
+
+  // Configuration
+  private final Writer fileWriter;
+  private final Consumer<String> console;
+  private final OverflowPolicy overflowPolicy;
+
+  // Ring buffer
+  private final Record[] records;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private long head = 0;
+
+  // Stats
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  // Writer thread cache
+  private final Thread thread;
+  private volatile boolean closed = false;
+  private final StringBuilder line = new StringBuilder(256);
+  private final SimpleDateFormat secondFormat = new SimpleDateFormat("MM/dd/yyyy hh:mm:ss.");
+  private long cachedSecond = -1;
+  private String cachedTimestamp = "";
+
+  /**
+   * Constructor, this will start the writer thread
+   * @param capacity Number of messages that can be waiting, rounded up to a power of two
+   * @param overflowPolicy What to do when full
+   * @param fileWriter Where to write messages, null to skip
+   * @param console Where to echo messages, null to skip
+   */
+  public LogSink(int capacity, OverflowPolicy overflowPolicy, Writer fileWriter, Consumer<String> console) {
+    int size = Integer.highestOneBit(Math.max(capacity, 2)-1)<<1;
+    this.records = new Record[size];
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      records[i] = new Record();
+      sequences.set(i, i);
+    }
+    this.mask = size-1;
+    this.overflowPolicy = overflowPolicy;
+    this.fileWriter = fileWriter;
+    this.console = console;
+
+    thread = new Thread(this, "TweetyBird log writer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Queues a message to be written, each {} in the format is replaced by the next value on the
+   * writer thread
+   * @param format Message with {} placeholders
+   * @param count Number of values in use
+   * @param a First value
+   * @param b Second value
+   * @param c Third value
+   * @return Whether the message was queued
+   */
+  public boolean publish(String format, int count, double a, double b, double c) {
+    long time = System.currentTimeMillis();
+    while (!closed) {
+      long position = tail.get();
+      int slot = (int) (position & mask);
+      long difference = sequences.get(slot)-position;
+      if (difference == 0) { // Slot is free
+        if (tail.compareAndSet(position, position+1)) {
+          Record record = records[slot];
+          record.time = time;
+          record.format = format;
+          record.count = count;
+          record.a = a;
+          record.b = b;
+          record.c = c;
+          sequences.set(slot, position+1);
+          return true;
+        }
+      } else if (difference < 0) { // Buffer is full
+        if (overflowPolicy == OverflowPolicy.DROP) {
+          break;
+        }
+        LockSupport.parkNanos(BLOCKED_NANOS);
+      }
+    }
+    droppedCount.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Returns how many messages were thrown away because the buffer was full or closed
+   * @return Dropped message count
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Stops accepting messages, writes everything still queued, and closes the file
+   */
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    LockSupport.unpark(thread);
+    if (Thread.currentThread() != thread) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Writer thread, do NOT call this method yourself
+   */
+  @Override
+  public void run() {
+    while (!closed) {
+      if (drain() == 0) {
+        LockSupport.parkNanos(IDLE_NANOS);
+      }
+    }
+
+    // Writing anything published before close
+    drain();
+    try {
+      if (fileWriter != null) {
+        fileWriter.close();
+      }
+    } catch (IOException e) {}
+  }
+
+  /**
+   * Writes every message that is ready and flushes the file once at the end of the batch
+   * @return Number of messages written
+   */
+  private int drain() {
+    int written = 0;
+    while (true) {
+      int slot = (int) (head & mask);
+      if (sequences.get(slot) != head+1) {
+        break;
+      }
+
+      // Formatting the message
+      Record record = records[slot];
+      line.setLength(0);
+      line.append('[');
+      appendTimestamp(record.time);
+      line.append(" TweetyBird]: ");
+      appendFormatted(record.format, record.count, record.a, record.b, record.c);
+      record.format = null;
+
+      // Releasing the slot
+      sequences.set(slot, head+mask+1);
+      head += 1;
+      written += 1;
+
+      // Output
+      String outputString = line.toString();
+      if (fileWriter != null) {
+        try {
+          fileWriter.write(outputString);
+          fileWriter.write(System.lineSeparator());
+        } catch (IOException e) {}
+      }
+      if (console != null) {
+        console.accept(outputString);
+      }
+    }
+
+    if (written > 0 && fileWriter != null) {
+      try {
+        fileWriter.flush();
+      } catch (IOException e) {}
+    }
+    return written;
+  }
+
+  /**
+   * Appends the date of a message, the date only gets reformatted once a second
+   * @param time Milliseconds since epoch
+   */
+  private void appendTimestamp(long time) {
+    long second = time/1000;
+    if (second != cachedSecond) {
+      cachedSecond = second;
+      cachedTimestamp = secondFormat.format(new Date(second*1000));
+    }
+    line.append(cachedTimestamp);
+    int millis = (int) (time%1000);
+    if (millis < 100) {
+      line.append('0');
+    }
+    if (millis < 10) {
+      line.append('0');
+    }
+    line.append(millis);
+  }
+
+  /**
+   * Appends a format with its {} placeholders replaced by up to three values
+   * @param format Message with {} placeholders
+   * @param count Number of values in use
+   * @param a First value
+   * @param b Second value
+   * @param c Third value
+   */
+  private void appendFormatted(String format, int count, double a, double b, double c) {
+    int argument = 0;
+    int start = 0;
+    int placeholder = count > 0 ? format.indexOf("{}") : -1;
+    while (placeholder >= 0 && argument < count) {
+      line.append(format, start, placeholder);
+      line.append(argument == 0 ? a : argument == 1 ? b : c);
+      argument += 1;
+      start = placeholder+2;
+      placeholder = format.indexOf("{}", start);
+    }
+    line.append(format, start, format.length());
+  }
+}
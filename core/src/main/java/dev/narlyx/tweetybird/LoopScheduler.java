@@ -0,0 +1,151 @@
+package dev.narlyx.tweetybird;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces the runtime loop at a fixed frequency and keeps track of missed deadlines and the
+ * measured loop rate.
+ */
+public class LoopScheduler {
+
+  // Sleeping is only precise to roughly this amount, the remainder is spent yielding
+  private static final long SPIN_THRESHOLD_NANOS = 200_000;
+
+  // Weight given to each new sample in the measured period average
+  private static final double RATE_SMOOTHING = 0.05;
+
+  // Configuration
+  private final double targetFrequency;
+  private final long periodNanos;
+  private final Clock clock;
+
+  // Cache
+  private long nextDeadline = 0;
+  private long lastTickStart = 0;
+  private double averagePeriod = 0;
+
+  // Stats
+  private volatile long tickCount = 0;
+  private volatile long overrunCount = 0;
+  private volatile double measuredFrequency = 0;
+  private volatile double deltaTime = 0;
+
+  /**
+   * Constructor
+   * @param targetFrequency Ticks per second, zero or less will run as fast as possible
+   */
+  public LoopScheduler(double targetFrequency) {
+    this(targetFrequency, System::nanoTime);
+  }
+
+  /**
+   * Constructor
+   * @param targetFrequency Ticks per second, zero or less will run as fast as possible
+   * @param clock Time source used to measure ticks
+   */
+  public LoopScheduler(double targetFrequency, Clock clock) {
+    this.targetFrequency = Math.max(targetFrequency, 0);
+    this.periodNanos = this.targetFrequency > 0 ? (long) (1e9/this.targetFrequency) : 0;
+    this.clock = clock;
+  }
+
+  /**
+   * Marks the start of the first tick, call this once right before the loop begins
+   */
+  public void start() {
+    long now = clock.nanoTime();
+    lastTickStart = now;
+    nextDeadline = now+periodNanos;
+  }
+
+  /**
+   * Blocks until the next tick is due, then records the tick. If the previous tick ran past its
+   * deadline it is counted as an overrun and the schedule restarts from now instead of trying to
+   * catch up with a burst of ticks.
+   */
+  public void awaitNextTick() {
+    if (periodNanos > 0) {
+      long now = clock.nanoTime();
+      if (now > nextDeadline) {
+        overrunCount += 1;
+        nextDeadline = now+periodNanos;
+      } else {
+        sleepUntil(nextDeadline);
+        nextDeadline += periodNanos;
+      }
+    }
+
+    recordTick();
+  }
+
+  /**
+   * Records the start of a tick without waiting, used when something else decides when ticks
+   * happen such as a simulation stepping the runtime
+   */
+  public void recordTick() {
+    long tickStart = clock.nanoTime();
+    long period = tickStart-lastTickStart;
+    lastTickStart = tickStart;
+    averagePeriod = averagePeriod == 0 ? period : averagePeriod+(period-averagePeriod)*RATE_SMOOTHING;
+    measuredFrequency = averagePeriod > 0 ? 1e9/averagePeriod : 0;
+    deltaTime = period/1e9;
+    tickCount += 1;
+  }
+
+  /**
+   * Sleeps most of the remaining time and yields through the last stretch, returning early if
+   * the thread is interrupted
+   * @param deadline Target clock time
+   */
+  private void sleepUntil(long deadline) {
+    long remaining = deadline-clock.nanoTime();
+    while (remaining > 0 && !Thread.currentThread().isInterrupted()) {
+      if (remaining > SPIN_THRESHOLD_NANOS) {
+        LockSupport.parkNanos(remaining-SPIN_THRESHOLD_NANOS);
+      } else {
+        Thread.yield();
+      }
+      remaining = deadline-clock.nanoTime();
+    }
+  }
+
+  /**
+   * Returns the configured frequency
+   * @return Ticks per second, zero if unlimited
+   */
+  public double getTargetFrequency() {
+    return targetFrequency;
+  }
+
+  /**
+   * Returns the smoothed frequency the loop is actually running at
+   * @return Ticks per second
+   */
+  public double getMeasuredFrequency() {
+    return measuredFrequency;
+  }
+
+  /**
+   * Returns the time between the start of the last two ticks
+   * @return Seconds
+   */
+  public double getDeltaTime() {
+    return deltaTime;
+  }
+
+  /**
+   * Returns how many ticks have been started
+   * @return Tick count
+   */
+  public long getTickCount() {
+    return tickCount;
+  }
+
+  /**
+   * Returns how many ticks took longer than one period to complete
+   * @return Overrun count
+   */
+  public long getOverrunCount() {
+    return overrunCount;
+  }
+}
@@ -0,0 +1,247 @@
+package dev.narlyx.tweetybird;
+
+/**
+ * A velocity profile stored as a lookup table of velocity by distance traveled from rest. The
+ * table is built once from the velocity, acceleration, and jerk limits, after that a velocity
+ * is found with a binary search. Speeding up from the start of a path and slowing down to its
+ * end are the same curve read from opposite ends, so one table serves every path. A PathCache
+ * can store the table so it does not have to be built again at init.
+ */
+public class MotionProfile {
+
+  // Number of points in the lookup table
+  static final int SAMPLES = 256;
+
+  // Configuration
+  private final double maxVelocity, maxAcceleration, maxJerk;
+
+  // Lookup table, distance is increasing
+  private final double[] distance;
+  private final double[] velocity;
+
+  /**
+   * Constructor
+   * @param maxVelocity Fastest allowed velocity in units per second
+   * @param maxAcceleration Fastest allowed change in velocity in units per second squared
+   * @param maxJerk Fastest allowed change in acceleration in units per second cubed, zero or
+   *                less gives a trapezoidal profile with instant changes in acceleration
+   */
+  public MotionProfile(double maxVelocity, double maxAcceleration, double maxJerk) {
+    this.maxVelocity = maxVelocity;
+    this.maxAcceleration = maxAcceleration;
+    this.maxJerk = maxJerk;
+    distance = new double[SAMPLES];
+    velocity = new double[SAMPLES];
+
+    // No limit on acceleration, full velocity right away
+    if (maxAcceleration <= 0 || maxVelocity <= 0) {
+      for (int i = 0; i < SAMPLES; i++) {
+        distance[i] = i;
+        velocity[i] = Math.max(maxVelocity, 0);
+      }
+      return;
+    }
+
+    if (maxJerk <= 0) {
+      buildTrapezoidal(maxAcceleration);
+    } else {
+      buildSCurve(maxAcceleration, maxJerk);
+    }
+  }
+
+  /**
+   * Constructor for a table that was already built, used when loading a PathCache
+   * @param maxVelocity Velocity limit the table was built with
+   * @param maxAcceleration Acceleration limit the table was built with
+   * @param maxJerk Jerk limit the table was built with
+   * @param distance Distance of every point, SAMPLES long and increasing
+   * @param velocity Velocity of every point, SAMPLES long
+   */
+  MotionProfile(double maxVelocity, double maxAcceleration, double maxJerk,
+                double[] distance, double[] velocity) {
+    if (distance.length != SAMPLES || velocity.length != SAMPLES) {
+      throw new IllegalArgumentException("Motion profile tables must have "+SAMPLES+" points");
+    }
+    this.maxVelocity = maxVelocity;
+    this.maxAcceleration = maxAcceleration;
+    this.maxJerk = maxJerk;
+    this.distance = distance;
+    this.velocity = velocity;
+  }
+
+  /**
+   * Fills the table with constant acceleration up to the maximum velocity
+   * @param acceleration Acceleration
+   */
+  private void buildTrapezoidal(double acceleration) {
+    double duration = maxVelocity/acceleration;
+    for (int i = 0; i < SAMPLES; i++) {
+      double t = duration*i/(SAMPLES-1);
+      distance[i] = acceleration*t*t/2;
+      velocity[i] = acceleration*t;
+    }
+  }
+
+  /**
+   * Fills the table with jerk limited acceleration up to the maximum velocity, acceleration
+   * ramps up, holds, and ramps back down to zero as the maximum velocity is reached
+   * @param maxAcceleration Acceleration limit
+   * @param jerk Jerk limit
+   */
+  private void buildSCurve(double maxAcceleration, double jerk) {
+    // Peak acceleration is lower when the velocity is reached before the limit
+    double peakAcceleration = Math.min(maxAcceleration, Math.sqrt(maxVelocity*jerk));
+    double rampTime = peakAcceleration/jerk;
+    double holdTime = (maxVelocity-peakAcceleration*rampTime)/peakAcceleration;
+
+    // State at the end of the first ramp and the hold
+    double v1 = jerk*rampTime*rampTime/2;
+    double d1 = jerk*rampTime*rampTime*rampTime/6;
+    double v2 = v1+peakAcceleration*holdTime;
+    double d2 = d1+v1*holdTime+peakAcceleration*holdTime*holdTime/2;
+
+    double duration = 2*rampTime+holdTime;
+    for (int i = 0; i < SAMPLES; i++) {
+      double t = duration*i/(SAMPLES-1);
+      if (t < rampTime) { // Acceleration ramping up
+        velocity[i] = jerk*t*t/2;
+        distance[i] = jerk*t*t*t/6;
+      } else if (t < rampTime+holdTime) { // Acceleration held
+        double tau = t-rampTime;
+        velocity[i] = v1+peakAcceleration*tau;
+        distance[i] = d1+v1*tau+peakAcceleration*tau*tau/2;
+      } else { // Acceleration ramping down
+        double tau = Math.min(t-rampTime-holdTime, rampTime);
+        velocity[i] = v2+peakAcceleration*tau-jerk*tau*tau/2;
+        distance[i] = d2+v2*tau+peakAcceleration*tau*tau/2-jerk*tau*tau*tau/6;
+      }
+    }
+  }
+
+  /**
+   * Returns the velocity after traveling a distance from rest
+   * @param distanceFromRest Distance traveled
+   * @return Velocity in units per second
+   */
+  public double getVelocity(double distanceFromRest) {
+    if (distanceFromRest <= 0) {
+      return velocity[0];
+    }
+    if (distanceFromRest >= distance[SAMPLES-1]) {
+      return maxVelocity;
+    }
+
+    // Last point at or before the distance
+    int low = 0;
+    int high = SAMPLES-1;
+    while (high-low > 1) {
+      int middle = (low+high) >>> 1;
+      if (distance[middle] <= distanceFromRest) {
+        low = middle;
+      } else {
+        high = middle;
+      }
+    }
+
+    double span = distance[high]-distance[low];
+    double blend = span > 0 ? (distanceFromRest-distance[low])/span : 0;
+    return velocity[low]+(velocity[high]-velocity[low])*blend;
+  }
+
+  /**
+   * Returns the velocity at a point on a path that starts and ends at rest
+   * @param distanceFromStart Distance traveled on the path
+   * @param distanceToEnd Distance left on the path
+   * @return Velocity in units per second
+   */
+  public double getVelocity(double distanceFromStart, double distanceToEnd) {
+    return Math.min(getVelocity(distanceFromStart), getVelocity(distanceToEnd));
+  }
+
+  /**
+   * Returns the acceleration after traveling a distance from rest, each table segment is treated
+   * as constant acceleration so a trapezoidal profile gives its exact acceleration
+   * @param distanceFromRest Distance traveled
+   * @return Acceleration in units per second squared
+   */
+  public double getAcceleration(double distanceFromRest) {
+    if (distanceFromRest >= distance[SAMPLES-1]) {
+      return 0;
+    }
+
+    // Segment holding the distance
+    int low = 0;
+    int high = 1;
+    if (distanceFromRest > 0) {
+      high = SAMPLES-1;
+      while (high-low > 1) {
+        int middle = (low+high) >>> 1;
+        if (distance[middle] <= distanceFromRest) {
+          low = middle;
+        } else {
+          high = middle;
+        }
+      }
+    }
+
+    double span = distance[high]-distance[low];
+    if (span <= 0) {
+      return 0;
+    }
+    return (velocity[high]*velocity[high]-velocity[low]*velocity[low])/(2*span);
+  }
+
+  /**
+   * Returns the acceleration at a point on a path that starts and ends at rest, negative while
+   * slowing down to the end
+   * @param distanceFromStart Distance traveled on the path
+   * @param distanceToEnd Distance left on the path
+   * @return Acceleration in units per second squared
+   */
+  public double getAcceleration(double distanceFromStart, double distanceToEnd) {
+    if (getVelocity(distanceFromStart) <= getVelocity(distanceToEnd)) {
+      return getAcceleration(distanceFromStart);
+    }
+    return -getAcceleration(distanceToEnd);
+  }
+
+  /**
+   * Returns the configured maximum velocity
+   * @return Units per second
+   */
+  public double getMaxVelocity() {
+    return maxVelocity;
+  }
+
+  /**
+   * Returns the configured maximum acceleration
+   * @return Units per second squared
+   */
+  public double getMaxAcceleration() {
+    return maxAcceleration;
+  }
+
+  /**
+   * Returns the configured maximum jerk, zero or less for a trapezoidal profile
+   * @return Units per second cubed
+   */
+  public double getMaxJerk() {
+    return maxJerk;
+  }
+
+  /**
+   * Returns the distance of every point in the table
+   * @return Table, not copied
+   */
+  double[] getDistanceTable() {
+    return distance;
+  }
+
+  /**
+   * Returns the velocity of every point in the table
+   * @return Table, not copied
+   */
+  double[] getVelocityTable() {
+    return velocity;
+  }
+}
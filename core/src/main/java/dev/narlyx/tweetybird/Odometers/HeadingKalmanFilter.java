@@ -0,0 +1,109 @@
+package dev.narlyx.tweetybird.Odometers;
+
+/**
+ * A two state Kalman filter that fuses the heading change measured by odometry wheels with an
+ * absolute heading from an IMU. Besides the heading it estimates the scale error of the wheel
+ * rotation, which is what a slightly wrong encoder distance causes, so the wheels stay accurate
+ * between IMU reads. The state and covariance live in preallocated arrays and nothing is
+ * created per update.
+ */
+public class HeadingKalmanFilter {
+
+  // Configuration, as variances
+  private final double wheelVariance, scaleVariance, imuVariance;
+
+  // State, heading in radians and wheel scale error
+  private final double[] state = new double[2];
+
+  // Covariance, row major 2x2
+  private final double[] covariance = new double[4];
+
+  /**
+   * Constructor
+   * @param wheelNoise Standard deviation of the wheel heading error per radian turned
+   * @param scaleNoise Standard deviation of the change in wheel scale error per update
+   * @param imuNoise Standard deviation of an IMU heading read in radians
+   */
+  public HeadingKalmanFilter(double wheelNoise, double scaleNoise, double imuNoise) {
+    this.wheelVariance = wheelNoise*wheelNoise;
+    this.scaleVariance = scaleNoise*scaleNoise;
+    this.imuVariance = Math.max(imuNoise*imuNoise, 1e-12);
+    reset(0);
+  }
+
+  /**
+   * Sets the heading and forgets the scale error
+   * @param heading Heading in radians
+   */
+  public void reset(double heading) {
+    state[0] = heading;
+    state[1] = 0;
+    covariance[0] = 0;
+    covariance[1] = 0;
+    covariance[2] = 0;
+    covariance[3] = 0.01;
+  }
+
+  /**
+   * Moves the heading by a rotation measured by the wheels, corrected by the estimated scale
+   * error
+   * @param wheelRotation Heading change from the wheels in radians
+   */
+  public void predict(double wheelRotation) {
+    // F = [1, wheelRotation; 0, 1]
+    state[0] += wheelRotation*(1+state[1]);
+
+    double p00 = covariance[0], p01 = covariance[1], p11 = covariance[3];
+    covariance[0] = p00+2*wheelRotation*p01+wheelRotation*wheelRotation*p11
+        +wheelVariance*Math.abs(wheelRotation);
+    covariance[1] = p01+wheelRotation*p11;
+    covariance[2] = covariance[1];
+    covariance[3] = p11+scaleVariance;
+  }
+
+  /**
+   * Corrects the heading with an absolute reading
+   * @param heading Measured heading in radians, may be wrapped to any range
+   */
+  public void correct(double heading) {
+    // H = [1, 0], the innovation is wrapped so the estimate itself never wraps
+    double innovation = heading-state[0];
+    innovation = Math.atan2(Math.sin(innovation), Math.cos(innovation));
+    double p00 = covariance[0], p01 = covariance[1], p11 = covariance[3];
+    double residualVariance = p00+imuVariance;
+    double gain0 = p00/residualVariance;
+    double gain1 = p01/residualVariance;
+
+    state[0] += gain0*innovation;
+    state[1] += gain1*innovation;
+    covariance[0] = (1-gain0)*p00;
+    covariance[1] = (1-gain0)*p01;
+    covariance[2] = covariance[1];
+    covariance[3] = p11-gain1*p01;
+  }
+
+  /**
+   * Returns the fused heading
+   * @return Radians, not wrapped
+   */
+  public double getHeading() {
+    return state[0];
+  }
+
+  /**
+   * Returns the estimated wheel scale error, 0.01 means the wheels report 1% less rotation
+   * than really happened
+   * @return Scale error
+   */
+  public double getScaleError() {
+    return state[1];
+  }
+
+  /**
+   * Returns the variance of the heading estimate
+   * @return Radians squared
+   */
+  public double getHeadingVariance() {
+    return covariance[0];
+  }
+}
@@ -0,0 +1,94 @@
+package dev.narlyx.tweetybird.Odometers;
+
+/**
+ * The position math behind the three wheel odometer, it turns encoder positions into a field
+ * position.
+ */
+public class ThreeWheeledKinematics {
+
+  // Configuration
+  private final double sideEncoderDistance, middleEncoderOffset, inchesPerTick;
+
+  // Cache
+  private double X = 0;
+  private double Y = 0;
+  private double Z = 0;
+
+  private int lastLeftPos = 0;
+  private int lastRightPos = 0;
+  private int lastMiddlePos = 0;
+
+  /**
+   * Constructor
+   * @param sideEncoderDistance Distance between the left and right encoders
+   * @param middleEncoderOffset Distance of the middle encoder from the center of the robot
+   * @param inchesPerTick Distance traveled per encoder tick
+   */
+  public ThreeWheeledKinematics(double sideEncoderDistance, double middleEncoderOffset,
+                                double inchesPerTick) {
+    this.sideEncoderDistance = sideEncoderDistance;
+    this.middleEncoderOffset = middleEncoderOffset;
+    this.inchesPerTick = inchesPerTick;
+  }
+
+  /**
+   * Moves the position by the change in encoder positions since the last update
+   * @param leftPosition Left encoder position in ticks
+   * @param rightPosition Right encoder position in ticks
+   * @param middlePosition Middle encoder position in ticks
+   */
+  public void update(int leftPosition, int rightPosition, int middlePosition) {
+    int leftPos = (leftPosition)-lastLeftPos;
+    int rightPos = (rightPosition)-lastRightPos;
+    int middlePos = (middlePosition)-lastMiddlePos;
+
+    lastLeftPos = leftPosition;
+    lastRightPos = rightPosition;
+    lastMiddlePos = middlePosition;
+
+    double initialZ = inchesPerTick*((rightPos-leftPos)/sideEncoderDistance);
+    double initialY = inchesPerTick*((leftPos+rightPos)/2.0);
+    double initialX = inchesPerTick*(middlePos-(rightPos-leftPos)*(middleEncoderOffset/sideEncoderDistance));
+
+    Z -= initialZ;
+    double theta = Z+(initialZ/2.0);
+    double relativeY = initialY*Math.cos(theta)-initialX*Math.sin(theta);
+    double relativeX = initialY*Math.sin(theta)+initialX*Math.cos(theta);
+
+    X += relativeX;
+    Y += relativeY;
+  }
+
+  /**
+   * Returns the X position since the start
+   * @return Unit of measurement
+   */
+  public double getX() {
+    return X;
+  }
+
+  /**
+   * Returns the Y position since the start
+   * @return Unit of measurement
+   */
+  public double getY() {
+    return Y;
+  }
+
+  /**
+   * Returns the Z rotation since the start
+   * @return Radians
+   */
+  public double getZ() {
+    return Z;
+  }
+
+  /**
+   * Replaces the Z rotation, used to apply a heading correction from another sensor, the
+   * next update turns its movement by the new rotation
+   * @param z Radians
+   */
+  public void setZ(double z) {
+    Z = z;
+  }
+}
@@ -0,0 +1,91 @@
+package dev.narlyx.tweetybird.Odometers;
+
+/**
+ * The position math behind the two wheel odometer, it turns a parallel and a perpendicular
+ * encoder plus an absolute heading into a field position.
+ */
+public class TwoWheeledKinematics {
+
+  // Configuration
+  private final double parallelEncoderOffset, perpendicularEncoderOffset, inchesPerTick;
+
+  // Cache
+  private double X = 0;
+  private double Y = 0;
+  private double Z = 0;
+
+  private boolean started = false;
+  private int lastParallelPos = 0;
+  private int lastPerpendicularPos = 0;
+
+  /**
+   * Constructor
+   * @param parallelEncoderOffset Distance of the parallel encoder to the right of the center
+   * @param perpendicularEncoderOffset Distance of the perpendicular encoder in front of the
+   *                                   center
+   * @param inchesPerTick Distance traveled per encoder tick
+   */
+  public TwoWheeledKinematics(double parallelEncoderOffset, double perpendicularEncoderOffset,
+                              double inchesPerTick) {
+    this.parallelEncoderOffset = parallelEncoderOffset;
+    this.perpendicularEncoderOffset = perpendicularEncoderOffset;
+    this.inchesPerTick = inchesPerTick;
+  }
+
+  /**
+   * Moves the position by the change in encoder positions since the last update, the part of
+   * each reading caused by turning is removed using the change in heading
+   * @param parallelPosition Parallel encoder position in ticks, counting up moving forwards
+   * @param perpendicularPosition Perpendicular encoder position in ticks, counting up moving
+   *                              right
+   * @param heading Heading in radians, counting up turning right, must not wrap around
+   */
+  public void update(int parallelPosition, int perpendicularPosition, double heading) {
+    if (!started) {
+      started = true;
+      lastParallelPos = parallelPosition;
+      lastPerpendicularPos = perpendicularPosition;
+      Z = heading;
+      return;
+    }
+
+    int parallelPos = parallelPosition-lastParallelPos;
+    int perpendicularPos = perpendicularPosition-lastPerpendicularPos;
+    lastParallelPos = parallelPosition;
+    lastPerpendicularPos = perpendicularPosition;
+
+    // Turning right moves a wheel right of center backwards and a wheel in front to the right
+    double deltaZ = heading-Z;
+    double axial = inchesPerTick*parallelPos+deltaZ*parallelEncoderOffset;
+    double lateral = inchesPerTick*perpendicularPos-deltaZ*perpendicularEncoderOffset;
+
+    double theta = Z+(deltaZ/2.0);
+    X += axial*Math.sin(theta)+lateral*Math.cos(theta);
+    Y += axial*Math.cos(theta)-lateral*Math.sin(theta);
+    Z = heading;
+  }
+
+  /**
+   * Returns the X position since the start
+   * @return Unit of measurement
+   */
+  public double getX() {
+    return X;
+  }
+
+  /**
+   * Returns the Y position since the start
+   * @return Unit of measurement
+   */
+  public double getY() {
+    return Y;
+  }
+
+  /**
+   * Returns the Z rotation since the start
+   * @return Radians
+   */
+  public double getZ() {
+    return Z;
+  }
+}
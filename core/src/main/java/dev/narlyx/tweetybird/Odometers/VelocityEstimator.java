@@ -0,0 +1,134 @@
+package dev.narlyx.tweetybird.Odometers;
+
+/**
+ * Estimates velocity from timestamped position samples. The change between samples is divided
+ * by the real time between them and smoothed with a low pass filter whose strength follows the
+ * interval, so late or early samples are weighted correctly. Nothing is allocated per sample.
+ */
+public class VelocityEstimator {
+
+  // Configuration
+  private final double timeConstant;
+  private final long minimumIntervalNanos;
+
+  // Last accepted sample
+  private boolean started = false;
+  private long lastTimestamp = 0;
+  private double lastX = 0, lastY = 0, lastZ = 0;
+
+  // Filtered field relative velocity
+  private double velocityX = 0, velocityY = 0, velocityZ = 0;
+  private double heading = 0;
+
+  /**
+   * Constructor
+   * @param timeConstant Seconds for the estimate to cover about 63% of a sudden change, zero
+   *                     uses the raw change between samples
+   * @param minimumInterval Seconds, samples closer than this to the last accepted one are
+   *                        ignored so repeated reads of the same encoder values do not count as
+   *                        stopping, their movement is included in the next accepted sample
+   */
+  public VelocityEstimator(double timeConstant, double minimumInterval) {
+    this.timeConstant = Math.max(timeConstant, 0);
+    this.minimumIntervalNanos = (long) (Math.max(minimumInterval, 0)*1e9);
+  }
+
+  /**
+   * Adds a position sample
+   * @param timestamp Monotonic time of the sample in nanoseconds
+   * @param x Field x
+   * @param y Field y
+   * @param z Rotation in radians, must not wrap around
+   */
+  public void update(long timestamp, double x, double y, double z) {
+    heading = z;
+    if (!started) {
+      started = true;
+      accept(timestamp, x, y, z);
+      return;
+    }
+    long interval = timestamp-lastTimestamp;
+    if (interval <= 0 || interval < minimumIntervalNanos) {
+      return;
+    }
+
+    double dt = interval/1e9;
+    double blend = timeConstant > 0 ? 1-Math.exp(-dt/timeConstant) : 1;
+    velocityX += ((x-lastX)/dt-velocityX)*blend;
+    velocityY += ((y-lastY)/dt-velocityY)*blend;
+    velocityZ += ((z-lastZ)/dt-velocityZ)*blend;
+    accept(timestamp, x, y, z);
+  }
+
+  /**
+   * Stores a sample as the one the next change is measured from
+   * @param timestamp Time in nanoseconds
+   * @param x Field x
+   * @param y Field y
+   * @param z Rotation
+   */
+  private void accept(long timestamp, double x, double y, double z) {
+    lastTimestamp = timestamp;
+    lastX = x;
+    lastY = y;
+    lastZ = z;
+  }
+
+  /**
+   * Forgets the previous samples and the estimate, used after the position is reset
+   */
+  public void reset() {
+    started = false;
+    velocityX = 0;
+    velocityY = 0;
+    velocityZ = 0;
+  }
+
+  /**
+   * Returns the time of the last accepted sample
+   * @return Nanoseconds
+   */
+  public long getTimestamp() {
+    return lastTimestamp;
+  }
+
+  /**
+   * Returns the field relative x velocity
+   * @return Units per second
+   */
+  public double getVelocityX() {
+    return velocityX;
+  }
+
+  /**
+   * Returns the field relative y velocity
+   * @return Units per second
+   */
+  public double getVelocityY() {
+    return velocityY;
+  }
+
+  /**
+   * Returns the rotation rate
+   * @return Radians per second
+   */
+  public double getVelocityZ() {
+    return velocityZ;
+  }
+
+  /**
+   * Returns the velocity towards the front of the robot
+   * @return Units per second
+   */
+  public double getAxialVelocity() {
+    return velocityX*Math.sin(heading)+velocityY*Math.cos(heading);
+  }
+
+  /**
+   * Returns the velocity towards the right of the robot
+   * @return Units per second
+   */
+  public double getLateralVelocity() {
+    return velocityX*Math.cos(heading)-velocityY*Math.sin(heading);
+  }
+}
@@ -0,0 +1,295 @@
+package dev.narlyx.tweetybird;
+
+/**
+ * The default controller, a PIDF loop with a static, velocity, and acceleration feedforward for
+ * both translation and heading. The follower's speed and yaw are the references. With a motion
+ * profile the translation kV and kA terms use the profile's target velocity and acceleration,
+ * without one, and for heading, the reference is turned into a velocity using the maximum
+ * velocities and the acceleration is measured between ticks. The feedback works on the distance
+ * and the rotation left to the current target. Every term is only added when its gain is not
+ * zero, so the default gains of kF = 1 and everything else 0 send exactly the follower's values.
+ */
+public class PIDFController implements Controller {
+
+  /**
+   * Gains and state of one controlled axis
+   */
+  private static class Axis {
+    // Gains
+    double kP = 0, kI = 0, kD = 0, kF = 1;
+    double kS = 0, kV = 0, kA = 0;
+    double integralZone;
+
+    // Cache
+    boolean started = false;
+    double integral = 0;
+    double lastError = 0;
+    double lastVelocity = 0;
+
+    /**
+     * Constructor
+     * @param integralZone Largest error the integral builds up at
+     */
+    Axis(double integralZone) {
+      this.integralZone = integralZone;
+    }
+
+    /**
+     * Computes the output for a tick
+     * @param reference Follower output used as the reference
+     * @param velocity Velocity the reference asks for
+     * @param acceleration Acceleration the reference asks for, NaN to measure it from the last
+     *                     tick
+     * @param error Distance left to the target
+     * @param errorRate How fast the error is changing, NaN to measure it from the last tick
+     * @param dt Seconds since the previous tick
+     * @return Output before clipping
+     */
+    double update(double reference, double velocity, double acceleration, double error,
+                  double errorRate, double dt) {
+      if (started && dt > 0) {
+        if (Double.isNaN(errorRate)) {
+          errorRate = (error-lastError)/dt;
+        }
+        if (Double.isNaN(acceleration)) {
+          acceleration = (velocity-lastVelocity)/dt;
+        }
+      } else {
+        if (Double.isNaN(errorRate)) {
+          errorRate = 0;
+        }
+        if (Double.isNaN(acceleration)) {
+          acceleration = 0;
+        }
+      }
+      started = true;
+      lastError = error;
+      lastVelocity = velocity;
+
+      // Only building the integral close to the target so it does not wind up on long moves
+      if (Math.abs(error) <= integralZone) {
+        integral += error*dt;
+      } else {
+        integral = 0;
+      }
+
+      double output = kF*reference;
+      if (kS != 0) {
+        output += kS*Math.signum(reference);
+      }
+      if (kV != 0) {
+        output += kV*velocity;
+      }
+      if (kA != 0) {
+        output += kA*acceleration;
+      }
+      if (kP != 0) {
+        output += kP*error;
+      }
+      if (kI != 0) {
+        output += kI*integral;
+      }
+      if (kD != 0) {
+        output += kD*errorRate;
+      }
+      return output;
+    }
+
+    /**
+     * Clears the state kept between ticks
+     */
+    void reset() {
+      started = false;
+      integral = 0;
+      lastError = 0;
+      lastVelocity = 0;
+    }
+  }
+
+  // Configuration
+  private final double maxVelocity, maxAngularVelocity;
+  private final Axis translation = new Axis(6);
+  private final Axis heading = new Axis(Math.toRadians(15));
+
+  // Results of the last update
+  private double axial = 0;
+  private double lateral = 0;
+  private double yaw = 0;
+  private double speed = 0;
+
+  /**
+   * Constructor
+   * @param maxVelocity How fast the robot moves at the maximum speed in units per second
+   * @param maxAngularVelocity How fast the robot turns at the maximum speed in radians per
+   *                           second
+   */
+  public PIDFController(double maxVelocity, double maxAngularVelocity) {
+    this.maxVelocity = maxVelocity;
+    this.maxAngularVelocity = maxAngularVelocity;
+  }
+
+  /**
+   * Sets the feedback gains for translation, the error is the distance to the current target
+   * @param kP Output per unit of error
+   * @param kI Output per unit second of error
+   * @param kD Output per unit per second the error changes
+   * @param kF Output per unit of the follower's speed
+   */
+  public void setTranslationPIDF(double kP, double kI, double kD, double kF) {
+    translation.kP = kP;
+    translation.kI = kI;
+    translation.kD = kD;
+    translation.kF = kF;
+  }
+
+  /**
+   * Sets the feedforward gains for translation
+   * @param kS Output added to overcome static friction
+   * @param kV Output per unit per second of the motion profile's target velocity
+   * @param kA Output per unit per second squared of the motion profile's target acceleration
+   */
+  public void setTranslationFeedforward(double kS, double kV, double kA) {
+    translation.kS = kS;
+    translation.kV = kV;
+    translation.kA = kA;
+  }
+
+  /**
+   * Sets the feedback gains for heading, the error is the rotation left to the target
+   * @param kP Output per radian of error
+   * @param kI Output per radian second of error
+   * @param kD Output per radian per second the error changes
+   * @param kF Output per unit of the follower's yaw
+   */
+  public void setHeadingPIDF(double kP, double kI, double kD, double kF) {
+    heading.kP = kP;
+    heading.kI = kI;
+    heading.kD = kD;
+    heading.kF = kF;
+  }
+
+  /**
+   * Sets the feedforward gains for heading
+   * @param kS Output added to overcome static friction
+   * @param kV Output per radian per second of angular velocity
+   * @param kA Output per radian per second squared of angular acceleration
+   */
+  public void setHeadingFeedforward(double kS, double kV, double kA) {
+    heading.kS = kS;
+    heading.kV = kV;
+    heading.kA = kA;
+  }
+
+  /**
+   * Sets how close to the target the integrals build up, further away they are cleared,
+   * the defaults are 6 units and 15 degrees
+   * @param translationZone Distance
+   * @param headingZone Radians
+   */
+  public void setIntegralZones(double translationZone, double headingZone) {
+    translation.integralZone = translationZone;
+    heading.integralZone = headingZone;
+  }
+
+  /**
+   * Computes the outputs for this tick, the error rates come from the velocity when it is
+   * provided and are measured between ticks otherwise
+   * @param follower Follower that was just updated with the pose
+   * @param pose Pose the follower planned from
+   * @param velocity Field relative velocity, null if the odometer does not provide velocity
+   * @param dt Seconds since the previous tick, zero on the first tick
+   */
+  @Override
+  public void update(PathFollower follower, Pose pose, Pose velocity, double dt) {
+    double minSpeed = follower.getMinSpeed();
+    double maxSpeed = follower.getMaxSpeed();
+    double scale = maxSpeed > 0 ? 1/maxSpeed : 0;
+
+    // Translation, the error shrinks at the speed the robot moves towards the target heading
+    double translationRate = Double.NaN;
+    if (velocity != null) {
+      double direction = follower.getTargetHeading()+pose.getZ();
+      translationRate = -(velocity.getX()*Math.sin(direction)
+          +velocity.getY()*Math.cos(direction));
+    }
+    double reference = follower.getSpeed();
+    double targetVelocity = follower.getTargetVelocity();
+    if (Double.isNaN(targetVelocity)) {
+      targetVelocity = reference*scale*maxVelocity;
+    }
+    double output = translation.update(reference, targetVelocity,
+        follower.getTargetAcceleration(), follower.getDistanceToTarget(), translationRate, dt);
+    speed = clip(output, minSpeed, maxSpeed);
+    axial = follower.getAxial();
+    lateral = follower.getLateral();
+
+    // Heading
+    double headingRate = velocity != null ? -velocity.getZ() : Double.NaN;
+    reference = follower.getYaw();
+    output = heading.update(reference, reference*scale*maxAngularVelocity, Double.NaN,
+        follower.getTargetYaw()-pose.getZ(), headingRate, dt);
+    yaw = clip(output, -maxSpeed, maxSpeed);
+  }
+
+  /**
+   * Clears the integrals and the values kept between ticks
+   */
+  @Override
+  public void reset() {
+    translation.reset();
+    heading.reset();
+  }
+
+  /**
+   * Returns the axial output for the driver
+   * @return Value from -1 to 1
+   */
+  @Override
+  public double getAxial() {
+    return axial;
+  }
+
+  /**
+   * Returns the lateral output for the driver
+   * @return Value from -1 to 1
+   */
+  @Override
+  public double getLateral() {
+    return lateral;
+  }
+
+  /**
+   * Returns the yaw output for the driver
+   * @return Value from -1 to 1
+   */
+  @Override
+  public double getYaw() {
+    return yaw;
+  }
+
+  /**
+   * Returns the speed output for the driver
+   * @return Value from 0 to 1
+   */
+  @Override
+  public double getSpeed() {
+    return speed;
+  }
+
+  /**
+   * Clips a number to a range
+   * @param number Input number
+   * @param min Lowest value
+   * @param max Highest value
+   * @return Clipped number
+   */
+  private double clip(double number, double min, double max) {
+    if (number < min) {
+      return min;
+    }
+    if (number > max) {
+      return max;
+    }
+    return number;
+  }
+}
@@ -0,0 +1,470 @@
+package dev.narlyx.tweetybird;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A set of named paths compiled ahead of time into a compact binary file, so an OpMode can load
+ * finished waypoints with their path lengths at init instead of sampling splines and adding
+ * waypoints one by one. A motion profile can be stored with the paths so its lookup table is
+ * not built again either. Files are little endian, a 32 byte header holds the magic, format
+ * version, path count, a CRC32 of the body, and a path version chosen by the user. The body starts
+ * with the motion profile's type, limits, and distance and velocity tables, then every path stores
+ * its name and its x, y, z, and length arrays back to back so loading is a bulk copy per array.
+ * Reading fails with an IOException when the file is damaged, was written with a different path
+ * version, or holds a motion profile built with different limits, bump the path version whenever
+ * the path code changes so stale caches are rebuilt.
+ */
+public class PathCache {
+
+  public static final int MAGIC = 0x54425043; // "TBPC"
+  public static final int VERSION = 2;
+  public static final int HEADER_SIZE = 32;
+
+  // Motion profile types stored in the file
+  private static final int PROFILE_NONE = 0;
+  private static final int PROFILE_TRAPEZOIDAL = 1;
+  private static final int PROFILE_S_CURVE = 2;
+
+  /**
+   * A compiled path, waypoints are stored in primitive arrays with the distance along the path
+   * from the first waypoint
+   */
+  public static final class Path {
+    private final String name;
+    double[] x, y, z, length;
+    int size = 0;
+
+    /**
+     * Constructor
+     * @param name Name of the path
+     * @param capacity Number of waypoints that fit before growing
+     */
+    private Path(String name, int capacity) {
+      this.name = name;
+      x = new double[capacity];
+      y = new double[capacity];
+      z = new double[capacity];
+      length = new double[capacity];
+    }
+
+    /**
+     * Adds a waypoint to the end of the path
+     * @param x Target X
+     * @param y Target Y
+     * @param z Target Z in degrees
+     * @return This path
+     */
+    public Path addWaypoint(double x, double y, double z) {
+      append(x, y, Math.toRadians(z));
+      return this;
+    }
+
+    /**
+     * Stores a waypoint at the end of the arrays, growing them when they are full
+     * @param x Target X
+     * @param y Target Y
+     * @param z Target Z in radians
+     */
+    private void append(double x, double y, double z) {
+      if (size >= this.x.length) {
+        int capacity = Math.max(16, size*2);
+        this.x = Arrays.copyOf(this.x, capacity);
+        this.y = Arrays.copyOf(this.y, capacity);
+        this.z = Arrays.copyOf(this.z, capacity);
+        this.length = Arrays.copyOf(this.length, capacity);
+      }
+      this.x[size] = x;
+      this.y[size] = y;
+      this.z[size] = z;
+      if (size > 0) {
+        double dx = x-this.x[size-1];
+        double dy = y-this.y[size-1];
+        this.length[size] = this.length[size-1]+Math.sqrt(dx*dx+dy*dy);
+      } else {
+        this.length[size] = 0;
+      }
+      size += 1;
+    }
+
+    /**
+     * Adds waypoints sampled along a spline to the end of the path, spaced the same way as
+     * TweetyBird.addSpline
+     * @param spline Spline to sample
+     * @param spacing Distance between waypoints along the spline, must be greater than 0, both
+     *                ends are always included
+     * @return This path
+     */
+    public Path addSpline(Spline spline, double spacing) {
+      if (!(spacing > 0)) {
+        throw new IllegalArgumentException("Spline spacing must be greater than 0, got "+spacing);
+      }
+      double splineLength = spline.getLength();
+      int count = Math.max(1, (int) Math.ceil(splineLength/spacing))+1;
+      for (int i = 0; i < count; i++) {
+        double distance = i == count-1 ? splineLength : i*spacing;
+        append(spline.getX(distance), spline.getY(distance), spline.getZ(distance));
+      }
+      return this;
+    }
+
+    /**
+     * Returns the name of the path
+     * @return Name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the size of the path
+     * @return Number of waypoints
+     */
+    public int getSize() {
+      return size;
+    }
+
+    /**
+     * Returns the X of a waypoint
+     * @param waypointIndex Target waypoint index
+     * @return Waypoint X
+     */
+    public double getX(int waypointIndex) {
+      checkIndex(waypointIndex);
+      return x[waypointIndex];
+    }
+
+    /**
+     * Returns the Y of a waypoint
+     * @param waypointIndex Target waypoint index
+     * @return Waypoint Y
+     */
+    public double getY(int waypointIndex) {
+      checkIndex(waypointIndex);
+      return y[waypointIndex];
+    }
+
+    /**
+     * Returns the Z of a waypoint
+     * @param waypointIndex Target waypoint index
+     * @return Waypoint Z in radians
+     */
+    public double getZ(int waypointIndex) {
+      checkIndex(waypointIndex);
+      return z[waypointIndex];
+    }
+
+    /**
+     * Returns the distance along the path from the first waypoint to a waypoint
+     * @param waypointIndex Target waypoint index
+     * @return Distance along the path
+     */
+    public double getLength(int waypointIndex) {
+      checkIndex(waypointIndex);
+      return length[waypointIndex];
+    }
+
+    /**
+     * Makes sure an index is inside the path, the arrays may be larger than the path
+     * @param waypointIndex Index to check
+     */
+    private void checkIndex(int waypointIndex) {
+      if (waypointIndex < 0 || waypointIndex >= size) {
+        throw new IndexOutOfBoundsException("Index: "+waypointIndex+", Size: "+size);
+      }
+    }
+  }
+
+  // Paths
+  private final long pathVersion;
+  private final Map<String, Path> paths = new LinkedHashMap<>();
+  private MotionProfile motionProfile = null;
+
+  /**
+   * Constructor for an empty cache
+   * @param pathVersion Version of the code that builds the paths, stored in the file and
+   *                    checked when it is read
+   */
+  public PathCache(long pathVersion) {
+    this.pathVersion = pathVersion;
+  }
+
+  /**
+   * Creates an empty path, replacing any path with the same name
+   * @param name Name used to look the path up
+   * @return New path to add waypoints to
+   */
+  public Path addPath(String name) {
+    Path path = new Path(name, 16);
+    paths.put(name, path);
+    return path;
+  }
+
+  /**
+   * Returns a path by name
+   * @param name Name the path was added with
+   * @return Path, or null if there is no path with that name
+   */
+  public Path getPath(String name) {
+    return paths.get(name);
+  }
+
+  /**
+   * Returns the names of every path in the order they were added
+   * @return Unmodifiable set of names
+   */
+  public Set<String> getPathNames() {
+    return Collections.unmodifiableSet(paths.keySet());
+  }
+
+  /**
+   * Sets the motion profile stored with the paths
+   * @param motionProfile Profile, null to store none
+   */
+  public void setMotionProfile(MotionProfile motionProfile) {
+    this.motionProfile = motionProfile;
+  }
+
+  /**
+   * Returns the motion profile stored with the paths
+   * @return Profile, or null if there is none
+   */
+  public MotionProfile getMotionProfile() {
+    return motionProfile;
+  }
+
+  /**
+   * Returns the version of the code that built the paths
+   * @return Path version
+   */
+  public long getPathVersion() {
+    return pathVersion;
+  }
+
+  /**
+   * Writes every path to a file, overwriting it
+   * @param cacheFile File to write
+   * @throws IOException If the file can not be written
+   */
+  public void write(File cacheFile) throws IOException {
+    // Sizing the file
+    byte[][] names = new byte[paths.size()][];
+    long bodySize = 4;
+    if (motionProfile != null) {
+      bodySize += 24L+16L*MotionProfile.SAMPLES;
+    }
+    int pathIndex = 0;
+    for (Path path : paths.values()) {
+      names[pathIndex] = path.name.getBytes(StandardCharsets.UTF_8);
+      bodySize += 8L+names[pathIndex].length+32L*path.size;
+      pathIndex += 1;
+    }
+    if (HEADER_SIZE+bodySize > Integer.MAX_VALUE) {
+      throw new IOException("Path cache too large");
+    }
+
+    // Body
+    ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_SIZE+bodySize));
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.position(HEADER_SIZE);
+    if (motionProfile != null) {
+      buffer.putInt(profileType(motionProfile.getMaxJerk()));
+      buffer.putDouble(motionProfile.getMaxVelocity());
+      buffer.putDouble(motionProfile.getMaxAcceleration());
+      buffer.putDouble(motionProfile.getMaxJerk());
+      putDoubles(buffer, motionProfile.getDistanceTable(), MotionProfile.SAMPLES);
+      putDoubles(buffer, motionProfile.getVelocityTable(), MotionProfile.SAMPLES);
+    } else {
+      buffer.putInt(PROFILE_NONE);
+    }
+    pathIndex = 0;
+    for (Path path : paths.values()) {
+      buffer.putInt(names[pathIndex].length);
+      buffer.put(names[pathIndex]);
+      buffer.putInt(path.size);
+      putDoubles(buffer, path.x, path.size);
+      putDoubles(buffer, path.y, path.size);
+      putDoubles(buffer, path.z, path.size);
+      putDoubles(buffer, path.length, path.size);
+      pathIndex += 1;
+    }
+
+    // Header
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), HEADER_SIZE, (int) bodySize);
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, paths.size());
+    buffer.putInt(12, (int) crc.getValue());
+    buffer.putLong(16, pathVersion);
+    buffer.putLong(24, bodySize);
+
+    try (FileOutputStream output = new FileOutputStream(cacheFile)) {
+      output.write(buffer.array());
+    }
+  }
+
+  /**
+   * Reads a file written by write() without a motion profile, the file is memory mapped and
+   * every array is copied out in one bulk read
+   * @param cacheFile File to read
+   * @param pathVersion Version of the code that builds the paths, the file must match it
+   * @return Loaded cache
+   * @throws IOException If the file can not be read, is damaged, or is stale
+   */
+  public static PathCache read(File cacheFile, long pathVersion) throws IOException {
+    return read(cacheFile, pathVersion, null);
+  }
+
+  /**
+   * Reads a file written by write() with a motion profile, the profile's table is loaded instead
+   * of being built again
+   * @param cacheFile File to read
+   * @param pathVersion Version of the code that builds the paths, the file must match it
+   * @param maxVelocity Velocity limit of the profile, the file must match it
+   * @param maxAcceleration Acceleration limit of the profile, the file must match it
+   * @param maxJerk Jerk limit of the profile, zero or less for a trapezoidal profile, the file
+   *                must match it
+   * @return Loaded cache
+   * @throws IOException If the file can not be read, is damaged, or is stale
+   */
+  public static PathCache read(File cacheFile, long pathVersion, double maxVelocity,
+                               double maxAcceleration, double maxJerk) throws IOException {
+    return read(cacheFile, pathVersion, new double[] {maxVelocity, maxAcceleration, maxJerk});
+  }
+
+  /**
+   * Reads a file written by write()
+   * @param cacheFile File to read
+   * @param pathVersion Version of the code that builds the paths, the file must match it
+   * @param profileLimits Velocity, acceleration, and jerk limits of the expected motion profile,
+   *                      null if the file should hold none
+   * @return Loaded cache
+   * @throws IOException If the file can not be read, is damaged, or is stale
+   */
+  private static PathCache read(File cacheFile, long pathVersion, double[] profileLimits)
+      throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(cacheFile, "r")) {
+      long fileSize = file.length();
+      MappedByteBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+      mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+      // Header
+      if (fileSize < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+        throw new IOException("Not a TweetyBird path cache");
+      }
+      if (mapped.getInt(4) != VERSION) {
+        throw new IOException("Unsupported path cache version "+mapped.getInt(4));
+      }
+      if (mapped.getLong(16) != pathVersion) {
+        throw new IOException("Stale path cache, built for path version "+mapped.getLong(16)
+            +" instead of "+pathVersion);
+      }
+      long bodySize = mapped.getLong(24);
+      if (bodySize < 0 || HEADER_SIZE+bodySize != fileSize) {
+        throw new IOException("Truncated path cache");
+      }
+      int pathCount = mapped.getInt(8);
+      int checksum = mapped.getInt(12);
+
+      // Checking the body before trusting any of it
+      byte[] body = new byte[(int) bodySize];
+      mapped.position(HEADER_SIZE);
+      mapped.get(body);
+      CRC32 crc = new CRC32();
+      crc.update(body, 0, body.length);
+      if ((int) crc.getValue() != checksum) {
+        throw new IOException("Path cache checksum mismatch");
+      }
+
+      // Motion profile and paths
+      ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+      PathCache cache = new PathCache(pathVersion);
+      try {
+        int type = buffer.getInt();
+        if (type != PROFILE_NONE) {
+          double maxVelocity = buffer.getDouble();
+          double maxAcceleration = buffer.getDouble();
+          double maxJerk = buffer.getDouble();
+          if (profileLimits == null || type != profileType(profileLimits[2])
+              || Double.compare(maxVelocity, profileLimits[0]) != 0
+              || Double.compare(maxAcceleration, profileLimits[1]) != 0
+              || Double.compare(maxJerk, profileLimits[2]) != 0) {
+            throw new IOException("Stale path cache, built for a different motion profile");
+          }
+          double[] distance = new double[MotionProfile.SAMPLES];
+          double[] velocity = new double[MotionProfile.SAMPLES];
+          getDoubles(buffer, distance, MotionProfile.SAMPLES);
+          getDoubles(buffer, velocity, MotionProfile.SAMPLES);
+          cache.motionProfile = new MotionProfile(maxVelocity, maxAcceleration, maxJerk,
+              distance, velocity);
+        } else if (profileLimits != null) {
+          throw new IOException("Stale path cache, built without a motion profile");
+        }
+
+        for (int i = 0; i < pathCount; i++) {
+          byte[] name = new byte[buffer.getInt()];
+          buffer.get(name);
+          int size = buffer.getInt();
+          if (size < 0 || (long) size*32 > buffer.remaining()) {
+            throw new IOException("Invalid path size "+size);
+          }
+          Path path = new Path(new String(name, StandardCharsets.UTF_8), size);
+          getDoubles(buffer, path.x, size);
+          getDoubles(buffer, path.y, size);
+          getDoubles(buffer, path.z, size);
+          getDoubles(buffer, path.length, size);
+          path.size = size;
+          cache.paths.put(path.name, path);
+        }
+      } catch (RuntimeException e) {
+        throw new IOException("Invalid path cache", e);
+      }
+      return cache;
+    }
+  }
+
+  /**
+   * Returns the type stored for a motion profile
+   * @param maxJerk Jerk limit of the profile
+   * @return Type
+   */
+  private static int profileType(double maxJerk) {
+    return maxJerk > 0 ? PROFILE_S_CURVE : PROFILE_TRAPEZOIDAL;
+  }
+
+  /**
+   * Bulk writes the start of an array at the buffer's position
+   * @param buffer Buffer to write into, its position moves past the values
+   * @param values Array to write
+   * @param count Number of values
+   */
+  private static void putDoubles(ByteBuffer buffer, double[] values, int count) {
+    buffer.asDoubleBuffer().put(values, 0, count);
+    buffer.position(buffer.position()+count*8);
+  }
+
+  /**
+   * Bulk reads into the start of an array from the buffer's position
+   * @param buffer Buffer to read from, its position moves past the values
+   * @param values Array to fill
+   * @param count Number of values
+   */
+  private static void getDoubles(ByteBuffer buffer, double[] values, int count) {
+    buffer.asDoubleBuffer().get(values, 0, count);
+    buffer.position(buffer.position()+count*8);
+  }
+}
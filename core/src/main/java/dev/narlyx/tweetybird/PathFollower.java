@@ -0,0 +1,464 @@
+package dev.narlyx.tweetybird;
+
+/**
+ * Works out how the robot should move to follow a waypoint path. Every tick the runtime passes
+ * in the robot's position and a snapshot of the queue, the follower then holds the distances,
+ * speed, and driver outputs for that tick until the next update.
+ */
+public class PathFollower {
+
+  // Configuration
+  private final double distanceBuffer, rotationBuffer;
+  private final double speedModifier;
+  private boolean purePursuit = false;
+  private double minLookahead = 0, maxLookahead = 0;
+  private volatile double minSpeed, maxSpeed;
+  private final MotionProfile motionProfile;
+
+  // Results of the last update
+  private double distanceToTarget = 0;
+  private double rotationDistanceToTarget = 0;
+  private double distanceToEnd = 0;
+  private double distanceFromLast = 0;
+  private double distanceBetweenWaypoints = 0;
+  private double distanceFromStart = 0;
+  private double speed = 0;
+  private double targetVelocity = Double.NaN;
+  private double targetAcceleration = Double.NaN;
+  private boolean onTarget = false;
+  private boolean onRotation = false;
+  private double targetHeading = 0;
+  private double axial = 0;
+  private double lateral = 0;
+  private double yaw = 0;
+  private double targetYaw = 0;
+  private boolean waypointPassed = false;
+
+  // Pure pursuit scratch values, kept as fields so nothing is allocated per tick
+  private int closestSegment = 0;
+  private double closestProgress = 0;
+  private double closestArcLength = 0;
+  private double projection = 0;
+  private double pointX = 0, pointY = 0;
+
+  /**
+   * Constructor
+   * @param distanceBuffer How close the robot needs to be to a waypoint
+   * @param rotationBuffer How close the robot needs to be to a waypoint's rotation in radians
+   * @param speedModifier Distance to speed ratio used to accelerate and decelerate
+   * @param minSpeed Slowest allowed speed
+   * @param maxSpeed Fastest allowed speed
+   */
+  public PathFollower(double distanceBuffer, double rotationBuffer, double speedModifier,
+                      double minSpeed, double maxSpeed) {
+    this(distanceBuffer, rotationBuffer, speedModifier, minSpeed, maxSpeed, null);
+  }
+
+  /**
+   * Constructor
+   * @param distanceBuffer How close the robot needs to be to a waypoint
+   * @param rotationBuffer How close the robot needs to be to a waypoint's rotation in radians
+   * @param speedModifier Distance to speed ratio used to accelerate and decelerate
+   * @param minSpeed Slowest allowed speed
+   * @param maxSpeed Fastest allowed speed
+   * @param motionProfile Profile that sets the speed along the path, null to use the linear
+   *                      ramp from the speed modifier
+   */
+  public PathFollower(double distanceBuffer, double rotationBuffer, double speedModifier,
+                      double minSpeed, double maxSpeed, MotionProfile motionProfile) {
+    this.motionProfile = motionProfile;
+    this.distanceBuffer = distanceBuffer;
+    this.rotationBuffer = rotationBuffer;
+    this.speedModifier = speedModifier;
+    setSpeedLimits(minSpeed, maxSpeed);
+  }
+
+  /**
+   * Changes the speed range, takes effect on the next update
+   * @param minSpeed Slowest allowed speed
+   * @param maxSpeed Fastest allowed speed
+   */
+  public void setSpeedLimits(double minSpeed, double maxSpeed) {
+    this.minSpeed = minSpeed;
+    this.maxSpeed = maxSpeed;
+  }
+
+  /**
+   * Switches to pure pursuit, the robot steers towards a point a set distance further along the
+   * path instead of straight at the current waypoint, which keeps it on the line between
+   * waypoints. The lookahead grows from the minimum at the minimum speed to the maximum at the
+   * maximum speed.
+   * @param minLookahead Lookahead distance at the minimum speed
+   * @param maxLookahead Lookahead distance at the maximum speed
+   */
+  public void setPurePursuit(double minLookahead, double maxLookahead) {
+    this.purePursuit = true;
+    this.minLookahead = minLookahead;
+    this.maxLookahead = Math.max(maxLookahead, minLookahead);
+  }
+
+  /**
+   * Computes the distances, speed, and outputs for the robot's position on the current waypoint
+   * of the passed snapshot, no objects are created
+   * @param pose Robot position
+   * @param path Queue snapshot to follow
+   */
+  public void update(Pose pose, WaypointPath path) {
+    double robotX = pose.getX();
+    double robotY = pose.getY();
+    double robotZ = pose.getZ();
+
+    // Target waypoint
+    int index = path.getIndex();
+    int lastIndex = path.getSize()-1;
+    double targetX = path.getX(index);
+    double targetY = path.getY(index);
+    double targetZ = path.getZ(index);
+
+    // Distances
+    distanceToTarget = distanceForm(targetX,targetY,robotX,robotY);
+    rotationDistanceToTarget = Math.abs(targetZ-robotZ);
+    distanceToEnd = distanceToTarget+path.getPathLength(index, lastIndex);
+
+    distanceFromLast = 0;
+    distanceBetweenWaypoints = 0;
+    if (index>0) {
+      distanceFromLast = distanceForm(robotX, robotY, path.getX(index-1), path.getY(index-1));
+      distanceBetweenWaypoints = distanceForm(targetX, targetY, path.getX(index-1), path.getY(index-1));
+    }
+
+    distanceFromStart = distanceFromLast;
+    if (index>1) {
+      distanceFromStart += path.getPathLength(0, index-1);
+    }
+
+    // Tracking by arc length along the path
+    boolean pursuing = purePursuit && lastIndex > 0;
+    closestSegment = index;
+    if (pursuing) {
+      findClosestPoint(robotX, robotY, path, index, lastIndex);
+      distanceFromStart = closestArcLength;
+      distanceToEnd = distanceForm(path.getX(closestSegment), path.getY(closestSegment), robotX, robotY)
+          +path.getPathLength(closestSegment, lastIndex);
+    }
+
+    // Speed
+    if (motionProfile != null) {
+      double velocity = motionProfile.getVelocity(distanceFromStart, distanceToEnd);
+      speed = clip(velocity/motionProfile.getMaxVelocity()*maxSpeed, minSpeed, maxSpeed);
+      targetVelocity = velocity;
+      targetAcceleration = motionProfile.getAcceleration(distanceFromStart, distanceToEnd);
+    } else {
+      double deccel = clip(distanceToEnd*speedModifier,minSpeed,maxSpeed);
+      double accel = clip(deccel-(distanceFromStart*speedModifier)-0.1,0,deccel-minSpeed);
+      speed = deccel-accel;
+    }
+
+    // Checks
+    double speedBuffer = ((1-(minSpeed*2))+(speed*2));
+    onTarget = distanceToTarget <= distanceBuffer * speedBuffer;
+    onRotation = rotationDistanceToTarget <= rotationBuffer * Math.toRadians(speedBuffer);
+
+    // Target heading and yaw
+    targetYaw = targetZ;
+    if (pursuing) {
+      double speedRange = maxSpeed-minSpeed;
+      double lookahead = minLookahead+(maxLookahead-minLookahead)
+          *(speedRange > 0 ? clip((speed-minSpeed)/speedRange, 0, 1) : 1);
+      findPointAt(path, closestSegment, lastIndex, closestArcLength+lookahead);
+      targetHeading = Math.atan2(pointX - robotX, pointY - robotY) - robotZ;
+
+      // Rotation is blended between waypoints by how far along the segment the robot is, once
+      // the robot is on the last waypoint it turns to the full heading so it can settle
+      if (index < lastIndex || !onTarget) {
+        double lastZ = path.getZ(closestSegment-1);
+        targetYaw = lastZ+(path.getZ(closestSegment)-lastZ)*closestProgress;
+      }
+    } else {
+      targetHeading = Math.atan2(targetX - robotX, targetY - robotY) - robotZ;
+    }
+
+    // Heading to X and Y
+    axial = Math.cos(targetHeading);
+    lateral = Math.sin(targetHeading);
+
+    // Yaw
+    double tempYawPower = clip((targetYaw-robotZ)/(Math.PI/5),-1,1);
+    double multiplier = tempYawPower/Math.abs(tempYawPower);
+    tempYawPower = clip(Math.abs(tempYawPower),minSpeed,maxSpeed);
+    yaw = tempYawPower*multiplier;
+
+    // Moving on from the current waypoint
+    if (index >= lastIndex) {
+      waypointPassed = false;
+    } else if (pursuing) {
+      waypointPassed = closestSegment > index || onTarget;
+    } else {
+      waypointPassed = onTarget && onRotation;
+    }
+  }
+
+  /**
+   * Finds the point on the path closest to the robot. The search starts at the segment leading
+   * to the current waypoint and only looks ahead as far as a point could still be closer, so
+   * the cost does not grow with the length of the path and the robot can not skip to a later
+   * part of a path that crosses itself. Segment k runs from waypoint k-1 to waypoint k.
+   * @param robotX Robot x
+   * @param robotY Robot y
+   * @param path Queue snapshot
+   * @param index Current waypoint index
+   * @param lastIndex Last waypoint index
+   */
+  private void findClosestPoint(double robotX, double robotY, WaypointPath path, int index,
+                                int lastIndex) {
+    int first = Math.max(index, 1);
+    double bestDistance = projectOntoSegment(robotX, robotY, path, first);
+    int bestSegment = first;
+    double bestProgress = projection;
+    for (int k = first+1; k <= lastIndex; k++) {
+      if (path.getPathLength(first, k-1) > bestDistance+maxLookahead) {
+        break;
+      }
+      double distance = projectOntoSegment(robotX, robotY, path, k);
+      if (distance < bestDistance) {
+        bestDistance = distance;
+        bestSegment = k;
+        bestProgress = projection;
+      }
+    }
+    closestSegment = bestSegment;
+    closestProgress = bestProgress;
+    closestArcLength = path.getPathLength(0, bestSegment-1)
+        +path.getPathLength(bestSegment-1, bestSegment)*bestProgress;
+  }
+
+  /**
+   * Projects the robot onto a segment, the progress along it is left in projection
+   * @param robotX Robot x
+   * @param robotY Robot y
+   * @param path Queue snapshot
+   * @param segment Segment index
+   * @return Distance from the robot to the segment
+   */
+  private double projectOntoSegment(double robotX, double robotY, WaypointPath path, int segment) {
+    double startX = path.getX(segment-1);
+    double startY = path.getY(segment-1);
+    double dx = path.getX(segment)-startX;
+    double dy = path.getY(segment)-startY;
+    double lengthSquared = dx*dx+dy*dy;
+    projection = lengthSquared > 0
+        ? clip(((robotX-startX)*dx+(robotY-startY)*dy)/lengthSquared, 0, 1) : 1;
+    return distanceForm(startX+dx*projection, startY+dy*projection, robotX, robotY);
+  }
+
+  /**
+   * Finds the point at an arc length along the path, walking forward from a segment, the
+   * result is left in pointX and pointY and is the last waypoint past the end of the path
+   * @param path Queue snapshot
+   * @param segment Segment to start walking from
+   * @param lastIndex Last waypoint index
+   * @param arcLength Distance from the start of the path
+   */
+  private void findPointAt(WaypointPath path, int segment, int lastIndex, double arcLength) {
+    for (int k = segment; k <= lastIndex; k++) {
+      double end = path.getPathLength(0, k);
+      if (end >= arcLength) {
+        double length = path.getPathLength(k-1, k);
+        double progress = length > 0 ? 1-(end-arcLength)/length : 1;
+        double startX = path.getX(k-1);
+        double startY = path.getY(k-1);
+        pointX = startX+(path.getX(k)-startX)*progress;
+        pointY = startY+(path.getY(k)-startY)*progress;
+        return;
+      }
+    }
+    pointX = path.getX(lastIndex);
+    pointY = path.getY(lastIndex);
+  }
+
+  /**
+   * Returns the distance between 2 points
+   * @param x1 Input x
+   * @param y1 Input y
+   * @param x2 Input x
+   * @param y2 Input y
+   * @return Distance
+   */
+  private double distanceForm(double x1, double y1, double x2, double y2) {
+    double dx = x2-x1;
+    double dy = y2-y1;
+    return Math.sqrt(dx*dx+dy*dy);
+  }
+
+  /**
+   * Limits a number to a range the same way the FTC Range.clip does
+   * @param number Input number
+   * @param min Lowest result
+   * @param max Highest result
+   * @return Clipped number
+   */
+  private double clip(double number, double min, double max) {
+    if (number < min) {
+      return min;
+    }
+    if (number > max) {
+      return max;
+    }
+    return number;
+  }
+
+  /**
+   * Returns the distance to the current waypoint
+   * @return Distance
+   */
+  public double getDistanceToTarget() {
+    return distanceToTarget;
+  }
+
+  /**
+   * Returns the velocity the motion profile asks for at the robot's place on the path
+   * @return Units per second, NaN when no motion profile is used
+   */
+  public double getTargetVelocity() {
+    return targetVelocity;
+  }
+
+  /**
+   * Returns the acceleration the motion profile asks for at the robot's place on the path
+   * @return Units per second squared, NaN when no motion profile is used
+   */
+  public double getTargetAcceleration() {
+    return targetAcceleration;
+  }
+
+  /**
+   * Returns the rotation left to the current waypoint
+   * @return Radians
+   */
+  public double getRotationDistanceToTarget() {
+    return rotationDistanceToTarget;
+  }
+
+  /**
+   * Returns the distance left on the path
+   * @return Distance
+   */
+  public double getDistanceToEnd() {
+    return distanceToEnd;
+  }
+
+  /**
+   * Returns the distance from the previous waypoint
+   * @return Distance
+   */
+  public double getDistanceFromLast() {
+    return distanceFromLast;
+  }
+
+  /**
+   * Returns the distance between the previous and current waypoint
+   * @return Distance
+   */
+  public double getDistanceBetweenWaypoints() {
+    return distanceBetweenWaypoints;
+  }
+
+  /**
+   * Returns the distance traveled on the path
+   * @return Distance
+   */
+  public double getDistanceFromStart() {
+    return distanceFromStart;
+  }
+
+  /**
+   * Returns the computed speed
+   * @return Speed from the minimum to the maximum speed
+   */
+  public double getSpeed() {
+    return speed;
+  }
+
+  /**
+   * Returns whether the robot is within the distance buffer of the current waypoint
+   * @return On target
+   */
+  public boolean isOnTarget() {
+    return onTarget;
+  }
+
+  /**
+   * Returns whether the robot is within the rotation buffer of the current waypoint
+   * @return On rotation
+   */
+  public boolean isOnRotation() {
+    return onRotation;
+  }
+
+  /**
+   * Returns whether the robot is done with the current waypoint and should move on to the next
+   * one, this is never true on the last waypoint
+   * @return Waypoint passed
+   */
+  public boolean isWaypointPassed() {
+    return waypointPassed;
+  }
+
+  /**
+   * Returns the direction being steered towards relative to the robot, this is the current
+   * waypoint or the lookahead point in pure pursuit
+   * @return Radians
+   */
+  public double getTargetHeading() {
+    return targetHeading;
+  }
+
+  /**
+   * Returns the rotation being turned towards, this is the current waypoint's rotation or a
+   * blend between waypoints in pure pursuit
+   * @return Radians
+   */
+  public double getTargetYaw() {
+    return targetYaw;
+  }
+
+  /**
+   * Returns the slowest allowed speed
+   * @return Value from 0 to 1
+   */
+  public double getMinSpeed() {
+    return minSpeed;
+  }
+
+  /**
+   * Returns the fastest allowed speed
+   * @return Value from 0 to 1
+   */
+  public double getMaxSpeed() {
+    return maxSpeed;
+  }
+
+  /**
+   * Returns the axial output for the driver
+   * @return Value from -1 to 1
+   */
+  public double getAxial() {
+    return axial;
+  }
+
+  /**
+   * Returns the lateral output for the driver
+   * @return Value from -1 to 1
+   */
+  public double getLateral() {
+    return lateral;
+  }
+
+  /**
+   * Returns the yaw output for the driver
+   * @return Value from -1 to 1
+   */
+  public double getYaw() {
+    return yaw;
+  }
+}
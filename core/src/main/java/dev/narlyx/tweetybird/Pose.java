@@ -0,0 +1,71 @@
+package dev.narlyx.tweetybird;
+
+/**
+ * Mutable holder for a robot position, used to read an odometer without creating new objects
+ */
+public class Pose {
+
+  /**
+   * Internal variables
+   */
+  private double x = 0, y = 0, z = 0;
+
+  /**
+   * Creates a pose at the origin
+   */
+  public Pose() {}
+
+  /**
+   * Constructor
+   * @param x Initial x
+   * @param y Initial y
+   * @param z Initial z
+   */
+  public Pose(double x, double y, double z) {
+    set(x, y, z);
+  }
+
+  /**
+   * Overwrites all stored values at once
+   * @param x New x
+   * @param y New y
+   * @param z New z
+   */
+  public void set(double x, double y, double z) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+  }
+
+  /**
+   * Copies all stored values from another pose
+   * @param pose Pose to copy from
+   */
+  public void set(Pose pose) {
+    set(pose.x, pose.y, pose.z);
+  }
+
+  /**
+   * Returns stored X
+   * @return Stored X
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * Returns stored Y
+   * @return Stored Y
+   */
+  public double getY() {
+    return y;
+  }
+
+  /**
+   * Returns stored Z
+   * @return Stored Z
+   */
+  public double getZ() {
+    return z;
+  }
+}
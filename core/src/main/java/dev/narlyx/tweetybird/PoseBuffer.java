@@ -0,0 +1,60 @@
+package dev.narlyx.tweetybird;
+
+/**
+ * A lock free slot holding the latest timestamped pose, written by one thread and read by any
+ * number of others. It is a sequence lock, the writer makes the sequence odd while it writes
+ * and even again when done, and a reader retries if the sequence was odd or changed while it
+ * read. The writer never waits and a reader only repeats a read of four values.
+ */
+public class PoseBuffer {
+
+  // Sequence, odd while a write is in progress, every field is volatile so reads stay ordered
+  private volatile long sequence = 0;
+  private volatile long timestamp = 0;
+  private volatile double x = 0, y = 0, z = 0;
+
+  /**
+   * Publishes a new pose, only call this from one thread
+   * @param timestamp Time the pose was measured in nanoseconds
+   * @param x Pose x
+   * @param y Pose y
+   * @param z Pose z
+   */
+  public void publish(long timestamp, double x, double y, double z) {
+    long next = sequence+1;
+    sequence = next;
+    this.timestamp = timestamp;
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    sequence = next+1;
+  }
+
+  /**
+   * Copies the latest pose into the passed pose
+   * @param pose Pose to be filled
+   * @return Time the pose was measured in nanoseconds
+   */
+  public long read(Pose pose) {
+    while (true) {
+      long before = sequence;
+      if ((before & 1) == 0) {
+        long readTimestamp = timestamp;
+        double readX = x, readY = y, readZ = z;
+        if (sequence == before) {
+          pose.set(readX, readY, readZ);
+          return readTimestamp;
+        }
+      }
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Returns how many poses have been published
+   * @return Publish count
+   */
+  public long getPublishCount() {
+    return sequence >>> 1;
+  }
+}
@@ -0,0 +1,316 @@
+package dev.narlyx.tweetybird;
+
+import java.util.Arrays;
+
+/**
+ * A smooth path through a list of control points. The curve is built once from cubic or
+ * quintic Hermite pieces and then resampled at even steps of arc length, so any point along it
+ * is found by distance with a table lookup and no root finding. Rotation is interpolated
+ * between the control points separately from the curve.
+ */
+public class Spline {
+
+  /**
+   * Kinds of curve pieces a spline can be built from.
+   */
+  public enum Type {
+    /** Matches position and direction at each control point */
+    CUBIC_HERMITE,
+    /** Also matches curvature at each control point, so curvature never jumps */
+    QUINTIC_HERMITE
+  }
+
+  // Chords measured per piece when working out the arc length
+  private static final int STEPS_PER_PIECE = 64;
+
+  // Sample table, sample i is at a distance of i*resolution along the curve
+  private final double resolution;
+  private final double length;
+  private final double[] x, y, z, tangent, curvature;
+
+  /**
+   * Constructor used to setup all variables from builder.
+   * @param builder Passed builder
+   */
+  public Spline(Spline.Builder builder) {
+    int points = builder.count;
+    if (points < 2) {
+      throw new IllegalArgumentException("A spline needs at least 2 points, got "+points);
+    }
+    if (!(builder.resolution > 0)) {
+      throw new IllegalArgumentException("Spline resolution must be greater than 0, got "
+          +builder.resolution);
+    }
+    int pieces = points-1;
+    boolean quintic = builder.type == Type.QUINTIC_HERMITE;
+
+    // Polynomial coefficients of every piece, six per piece from the constant term up
+    double[] cx = new double[pieces*6];
+    double[] cy = new double[pieces*6];
+    fitPieces(builder.x, points, quintic, cx);
+    fitPieces(builder.y, points, quintic, cy);
+
+    // Arc length at each step of the curve parameter, the parameter runs from 0 to pieces
+    double[] stepLength = new double[pieces*STEPS_PER_PIECE+1];
+    double lastX = cx[0];
+    double lastY = cy[0];
+    for (int step = 1; step < stepLength.length; step++) {
+      double t = (double) step/STEPS_PER_PIECE;
+      double nextX = evaluate(cx, t, 0);
+      double nextY = evaluate(cy, t, 0);
+      stepLength[step] = stepLength[step-1]+Math.hypot(nextX-lastX, nextY-lastY);
+      lastX = nextX;
+      lastY = nextY;
+    }
+    length = stepLength[stepLength.length-1];
+
+    // Resampling at even distances
+    resolution = builder.resolution;
+    int samples = Math.max(2, (int) Math.ceil(length/resolution)+1);
+    x = new double[samples];
+    y = new double[samples];
+    z = new double[samples];
+    tangent = new double[samples];
+    curvature = new double[samples];
+    int step = 0;
+    for (int i = 0; i < samples; i++) {
+      double distance = Math.min(i*resolution, length);
+      while (step < stepLength.length-2 && stepLength[step+1] < distance) {
+        step++;
+      }
+      double span = stepLength[step+1]-stepLength[step];
+      double blend = span > 0 ? (distance-stepLength[step])/span : 0;
+      double t = (step+blend)/STEPS_PER_PIECE;
+
+      x[i] = evaluate(cx, t, 0);
+      y[i] = evaluate(cy, t, 0);
+      double dx = evaluate(cx, t, 1);
+      double dy = evaluate(cy, t, 1);
+      double ddx = evaluate(cx, t, 2);
+      double ddy = evaluate(cy, t, 2);
+      double speed = Math.hypot(dx, dy);
+      tangent[i] = Math.atan2(dx, dy);
+      curvature[i] = speed > 0 ? (dx*ddy-dy*ddx)/(speed*speed*speed) : 0;
+
+      int piece = Math.min((int) t, pieces-1);
+      double u = t-piece;
+      z[i] = builder.z[piece]+(builder.z[piece+1]-builder.z[piece])*u;
+    }
+  }
+
+  /**
+   * Fills in the polynomial coefficients of every piece for one axis. Directions at the
+   * control points come from the neighbouring points, for quintic pieces the second
+   * derivative is the average of the neighbouring cubic pieces.
+   * @param p Control point values
+   * @param points Number of control points
+   * @param quintic Whether to fit quintic pieces
+   * @param c Coefficient array to fill
+   */
+  private static void fitPieces(double[] p, int points, boolean quintic, double[] c) {
+    int pieces = points-1;
+
+    // Directions
+    double[] m = new double[points];
+    m[0] = p[1]-p[0];
+    m[pieces] = p[pieces]-p[pieces-1];
+    for (int i = 1; i < pieces; i++) {
+      m[i] = (p[i+1]-p[i-1])/2;
+    }
+
+    // Cubic pieces
+    for (int i = 0; i < pieces; i++) {
+      int o = i*6;
+      c[o] = p[i];
+      c[o+1] = m[i];
+      c[o+2] = -3*p[i]-2*m[i]+3*p[i+1]-m[i+1];
+      c[o+3] = 2*p[i]+m[i]-2*p[i+1]+m[i+1];
+      c[o+4] = 0;
+      c[o+5] = 0;
+    }
+    if (!quintic) {
+      return;
+    }
+
+    // Second derivatives where the cubic pieces meet
+    double[] a = new double[points];
+    a[0] = 2*c[2];
+    a[pieces] = 2*c[(pieces-1)*6+2]+6*c[(pieces-1)*6+3];
+    for (int i = 1; i < pieces; i++) {
+      double left = 2*c[(i-1)*6+2]+6*c[(i-1)*6+3];
+      double right = 2*c[i*6+2];
+      a[i] = (left+right)/2;
+    }
+
+    // Quintic pieces
+    for (int i = 0; i < pieces; i++) {
+      int o = i*6;
+      double p0 = p[i], p1 = p[i+1], m0 = m[i], m1 = m[i+1], a0 = a[i], a1 = a[i+1];
+      c[o] = p0;
+      c[o+1] = m0;
+      c[o+2] = a0/2;
+      c[o+3] = -10*p0-6*m0-1.5*a0+0.5*a1-4*m1+10*p1;
+      c[o+4] = 15*p0+8*m0+1.5*a0-a1+7*m1-15*p1;
+      c[o+5] = -6*p0-3*m0-0.5*a0+0.5*a1-3*m1+6*p1;
+    }
+  }
+
+  /**
+   * Evaluates one axis of the curve or one of its derivatives
+   * @param c Coefficients of every piece
+   * @param t Curve parameter, the whole part picks the piece
+   * @param derivative 0 for the value, 1 for the first derivative, 2 for the second
+   * @return Value
+   */
+  private static double evaluate(double[] c, double t, int derivative) {
+    int pieces = c.length/6;
+    int piece = Math.min((int) t, pieces-1);
+    double u = t-piece;
+    int o = piece*6;
+    if (derivative == 0) {
+      return c[o]+u*(c[o+1]+u*(c[o+2]+u*(c[o+3]+u*(c[o+4]+u*c[o+5]))));
+    } else if (derivative == 1) {
+      return c[o+1]+u*(2*c[o+2]+u*(3*c[o+3]+u*(4*c[o+4]+u*5*c[o+5])));
+    }
+    return 2*c[o+2]+u*(6*c[o+3]+u*(12*c[o+4]+u*20*c[o+5]));
+  }
+
+  /**
+   * Returns the value of a table at a distance along the curve
+   * @param table Sample table
+   * @param distance Distance along the curve, clipped to the ends
+   * @return Interpolated value
+   */
+  private double lookup(double[] table, double distance) {
+    distance = Math.max(0, Math.min(distance, length));
+    int i = Math.min((int) (distance/resolution), table.length-2);
+
+    // The last sample sits at the end of the curve, which may be closer than a full step
+    double start = i*resolution;
+    double end = Math.min(start+resolution, length);
+    double blend = end > start ? Math.min((distance-start)/(end-start), 1) : 0;
+    return table[i]+(table[i+1]-table[i])*blend;
+  }
+
+  /**
+   * Returns the length of the curve
+   * @return Length
+   */
+  public double getLength() {
+    return length;
+  }
+
+  /**
+   * Returns the x position at a distance along the curve
+   * @param distance Distance from the start
+   * @return X
+   */
+  public double getX(double distance) {
+    return lookup(x, distance);
+  }
+
+  /**
+   * Returns the y position at a distance along the curve
+   * @param distance Distance from the start
+   * @return Y
+   */
+  public double getY(double distance) {
+    return lookup(y, distance);
+  }
+
+  /**
+   * Returns the interpolated rotation at a distance along the curve
+   * @param distance Distance from the start
+   * @return Z in radians
+   */
+  public double getZ(double distance) {
+    return lookup(z, distance);
+  }
+
+  /**
+   * Returns the direction of travel at a distance along the curve, measured the same way as
+   * the robot's rotation
+   * @param distance Distance from the start
+   * @return Radians
+   */
+  public double getTangent(double distance) {
+    int i = (int) Math.round(Math.max(0, Math.min(distance, length))/resolution);
+    return tangent[Math.min(i, tangent.length-1)];
+  }
+
+  /**
+   * Returns how sharply the curve bends at a distance along it, positive bends towards
+   * negative x when driving towards positive y
+   * @param distance Distance from the start
+   * @return One over the turning radius
+   */
+  public double getCurvature(double distance) {
+    return lookup(curvature, distance);
+  }
+
+  /**
+   * Used to configure a spline.
+   */
+  public static class Builder {
+
+    private double[] x = new double[8], y = new double[8], z = new double[8];
+    private int count = 0;
+
+    /**
+     * REQUIRED
+     * This will add a control point the curve passes through, at least 2 are needed
+     * @param x Point x
+     * @param y Point y
+     * @param z Rotation at the point in degrees
+     * @return Updated builder
+     */
+    public Builder addPoint(double x, double y, double z) {
+      if (count == this.x.length) {
+        this.x = Arrays.copyOf(this.x, count*2);
+        this.y = Arrays.copyOf(this.y, count*2);
+        this.z = Arrays.copyOf(this.z, count*2);
+      }
+      this.x[count] = x;
+      this.y[count] = y;
+      this.z[count] = Math.toRadians(z);
+      count++;
+      return this;
+    }
+
+    private Type type = Type.CUBIC_HERMITE;
+
+    /**
+     * OPTIONAL
+     * This will define the kind of curve pieces used,
+     * the default value is CUBIC_HERMITE.
+     * @param type Spline type
+     * @return Updated builder
+     */
+    public Builder setType(Type type) {
+      this.type = type;
+      return this;
+    }
+
+    private double resolution = 0.25;
+
+    /**
+     * OPTIONAL
+     * This value will define the distance between samples in the lookup table,
+     * the default value is 0.25.
+     * @param resolution Distance, must be greater than 0
+     * @return Updated builder
+     */
+    public Builder setResolution(double resolution) {
+      this.resolution = resolution;
+      return this;
+    }
+
+    /**
+     * This will construct and return a new spline
+     * @return Spline
+     */
+    public Spline build() {
+      return new Spline(this);
+    }
+  }
+}
@@ -0,0 +1,453 @@
+package dev.narlyx.tweetybird;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable, versioned snapshot of TweetyBird's waypoint queue. Every change to the queue
+ * publishes a new snapshot, so a snapshot can be read from any thread without locking and
+ * will never change underneath the reader.
+ * Waypoints are stored in primitive arrays that are shared between versions, slots past a
+ * snapshot's size are never read by it, so appending writes into spare capacity in place.
+ */
+public final class WaypointPath {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * Backing arrays, one per waypoint attribute, shared by every version that uses them
+   */
+  private static final class Storage {
+    final double[] x, y, z, pathLength;
+    final CompletableFuture<Waypoint>[] completion;
+    final AtomicInteger claimed;
+
+    /**
+     * Constructor
+     * @param capacity Number of waypoints that fit
+     * @param used Number of slots already filled
+     */
+    Storage(int capacity, int used) {
+      x = new double[capacity];
+      y = new double[capacity];
+      z = new double[capacity];
+      pathLength = new double[capacity];
+      @SuppressWarnings("unchecked")
+      CompletableFuture<Waypoint>[] futures = (CompletableFuture<Waypoint>[]) new CompletableFuture<?>[capacity];
+      completion = futures;
+      claimed = new AtomicInteger(used);
+    }
+
+    /**
+     * Creates new storage holding a copy of the first slots of this storage
+     * @param capacity Number of waypoints that fit
+     * @param count Number of slots to copy
+     * @return New storage
+     */
+    Storage copy(int capacity, int count) {
+      Storage copy = new Storage(capacity, count);
+      System.arraycopy(x, 0, copy.x, 0, count);
+      System.arraycopy(y, 0, copy.y, 0, count);
+      System.arraycopy(z, 0, copy.z, 0, count);
+      System.arraycopy(pathLength, 0, copy.pathLength, 0, count);
+      System.arraycopy(completion, 0, copy.completion, 0, count);
+      return copy;
+    }
+  }
+
+  // Snapshot
+  private final Storage storage;
+  private final int size;
+  private final int index;
+  private final long version;
+
+  /**
+   * Internal constructor, slots below size must not be modified afterwards
+   * @param storage Backing arrays
+   * @param size Number of waypoints
+   * @param index Current index
+   * @param version Version number
+   */
+  private WaypointPath(Storage storage, int size, int index, long version) {
+    this.storage = storage;
+    this.size = size;
+    this.index = index;
+    this.version = version;
+  }
+
+  /**
+   * Creates the first version of a path holding a single waypoint
+   * @param x Starting x
+   * @param y Starting y
+   * @param z Starting z
+   * @return New path
+   */
+  public static WaypointPath of(double x, double y, double z) {
+    return single(x, y, z, 0);
+  }
+
+  /**
+   * Creates a path holding a single waypoint
+   * @param x Waypoint x
+   * @param y Waypoint y
+   * @param z Waypoint z
+   * @param version Version number
+   * @return New path
+   */
+  private static WaypointPath single(double x, double y, double z, long version) {
+    Storage storage = new Storage(INITIAL_CAPACITY, 1);
+    storage.x[0] = x;
+    storage.y[0] = y;
+    storage.z[0] = z;
+    return new WaypointPath(storage, 1, 0, version);
+  }
+
+  /**
+   * Returns a copy of this path with a waypoint added to the end, when this version owns the
+   * next free slot no arrays are copied
+   * @param x New x
+   * @param y New y
+   * @param z New z
+   * @return Next version
+   */
+  public WaypointPath withAdded(double x, double y, double z) {
+    return withAdded(x, y, z, null);
+  }
+
+  /**
+   * Returns a copy of this path with a waypoint added to the end, when this version owns the
+   * next free slot no arrays are copied
+   * @param x New x
+   * @param y New y
+   * @param z New z
+   * @param completion Completed when the waypoint is reached, may be null
+   * @return Next version
+   */
+  public WaypointPath withAdded(double x, double y, double z, CompletableFuture<Waypoint> completion) {
+    Storage target = storage;
+    if (size >= target.x.length || !target.claimed.compareAndSet(size, size+1)) {
+      target = storage.copy(Math.max(storage.x.length, (size+1)*2), size);
+      target.claimed.set(size+1);
+    }
+    target.x[size] = x;
+    target.y[size] = y;
+    target.z[size] = z;
+    target.completion[size] = completion;
+    target.pathLength[size] = target.pathLength[size-1]
+        +distance(target.x[size-1], target.y[size-1], x, y);
+    return new WaypointPath(target, size+1, index, version+1);
+  }
+
+  /**
+   * Returns a copy of this path with waypoints sampled from a spline added to the end, the
+   * whole spline is published as one version so the runtime never sees half of it
+   * @param spline Spline to sample
+   * @param spacing Distance between waypoints along the spline, must be greater than 0, both
+   *                ends are always included
+   * @return Next version
+   */
+  public WaypointPath withAdded(Spline spline, double spacing) {
+    if (!(spacing > 0)) {
+      throw new IllegalArgumentException("Spline spacing must be greater than 0, got "+spacing);
+    }
+    double length = spline.getLength();
+    int count = Math.max(1, (int) Math.ceil(length/spacing))+1;
+    Storage target = storage;
+    if (size+count > target.x.length || !target.claimed.compareAndSet(size, size+count)) {
+      target = storage.copy(Math.max(storage.x.length, (size+count)*2), size);
+      target.claimed.set(size+count);
+    }
+    for (int i = 0; i < count; i++) {
+      int slot = size+i;
+      double distance = i == count-1 ? length : i*spacing;
+      target.x[slot] = spline.getX(distance);
+      target.y[slot] = spline.getY(distance);
+      target.z[slot] = spline.getZ(distance);
+      target.completion[slot] = null;
+      target.pathLength[slot] = target.pathLength[slot-1]
+          +distance(target.x[slot-1], target.y[slot-1], target.x[slot], target.y[slot]);
+    }
+    return new WaypointPath(target, size+count, index, version+1);
+  }
+
+  /**
+   * Returns a copy of this path with a compiled path added to the end, the waypoints and their
+   * path lengths are copied in bulk and published as one version
+   * @param compiled Path loaded from a path cache
+   * @return Next version, or this path if the compiled path is empty
+   */
+  public WaypointPath withAdded(PathCache.Path compiled) {
+    int count = compiled.size;
+    if (count == 0) {
+      return this;
+    }
+    Storage target = storage;
+    if (size+count > target.x.length || !target.claimed.compareAndSet(size, size+count)) {
+      target = storage.copy(Math.max(storage.x.length, (size+count)*2), size);
+      target.claimed.set(size+count);
+    }
+    System.arraycopy(compiled.x, 0, target.x, size, count);
+    System.arraycopy(compiled.y, 0, target.y, size, count);
+    System.arraycopy(compiled.z, 0, target.z, size, count);
+    Arrays.fill(target.completion, size, size+count, null);
+
+    // Compiled lengths start at the path's first waypoint, so they are shifted onto the end
+    double offset = target.pathLength[size-1]
+        +distance(target.x[size-1], target.y[size-1], compiled.x[0], compiled.y[0]);
+    for (int i = 0; i < count; i++) {
+      target.pathLength[size+i] = compiled.length[i]+offset;
+    }
+    return new WaypointPath(target, size+count, index, version+1);
+  }
+
+  /**
+   * Returns a copy of this path with a waypoint inserted at a specific index, waypoints at or
+   * after the index are moved back, and the current index is kept on the same waypoint unless
+   * the insert happens at the current index
+   * @param insertIndex Position in queue
+   * @param x New x
+   * @param y New y
+   * @param z New z
+   * @return Next version
+   */
+  public WaypointPath withInserted(int insertIndex, double x, double y, double z) {
+    return withInserted(insertIndex, x, y, z, null);
+  }
+
+  /**
+   * Returns a copy of this path with a waypoint inserted at a specific index, waypoints at or
+   * after the index are moved back, and the current index is kept on the same waypoint unless
+   * the insert happens at the current index
+   * @param insertIndex Position in queue
+   * @param x New x
+   * @param y New y
+   * @param z New z
+   * @param completion Completed when the waypoint is reached, may be null
+   * @return Next version
+   */
+  public WaypointPath withInserted(int insertIndex, double x, double y, double z,
+                                   CompletableFuture<Waypoint> completion) {
+    if (insertIndex < 0 || insertIndex > size) {
+      throw new IndexOutOfBoundsException("Index: "+insertIndex+", Size: "+size);
+    }
+    if (insertIndex == size) {
+      return withAdded(x, y, z, completion);
+    }
+
+    // Slots before the end are visible to older versions, so the tail is rebuilt in new storage
+    Storage target = storage.copy(Math.max(storage.x.length, (size+1)*2), insertIndex);
+    target.claimed.set(size+1);
+    target.x[insertIndex] = x;
+    target.y[insertIndex] = y;
+    target.z[insertIndex] = z;
+    target.completion[insertIndex] = completion;
+    System.arraycopy(storage.x, insertIndex, target.x, insertIndex+1, size-insertIndex);
+    System.arraycopy(storage.y, insertIndex, target.y, insertIndex+1, size-insertIndex);
+    System.arraycopy(storage.z, insertIndex, target.z, insertIndex+1, size-insertIndex);
+    System.arraycopy(storage.completion, insertIndex, target.completion, insertIndex+1, size-insertIndex);
+
+    // Only the lengths after the insert change
+    for (int i = Math.max(insertIndex, 1); i <= size; i++) {
+      target.pathLength[i] = target.pathLength[i-1]
+          +distance(target.x[i-1], target.y[i-1], target.x[i], target.y[i]);
+    }
+    return new WaypointPath(target, size+1, insertIndex < index ? index+1 : index, version+1);
+  }
+
+  /**
+   * Returns a copy of this path targeting the next waypoint, or this path if it is already at
+   * the last waypoint, the storage is shared so this never copies any arrays
+   * @return Next version
+   */
+  public WaypointPath withIncrement() {
+    if (index+1 >= size) {
+      return this;
+    }
+    return new WaypointPath(storage, size, index+1, version+1);
+  }
+
+  /**
+   * Returns a path that only holds the passed waypoint
+   * @param x Waypoint x, normally the current position
+   * @param y Waypoint y, normally the current position
+   * @param z Waypoint z, normally the current position
+   * @return Next version
+   */
+  public WaypointPath withCleared(double x, double y, double z) {
+    return single(x, y, z, version+1);
+  }
+
+  /**
+   * Returns a copy of this path with every waypoint up to and including the current index
+   * replaced by the passed placeholder. When the current index is the first waypoint there is
+   * nothing to remove and this path is returned as is.
+   * @param x Placeholder x, normally the current position
+   * @param y Placeholder y, normally the current position
+   * @param z Placeholder z, normally the current position
+   * @return Next version
+   */
+  public WaypointPath withClearedToCurrentIndex(double x, double y, double z) {
+    if (index == 0) {
+      return this;
+    }
+    int remaining = size-index-1;
+
+    // Compacting the shared storage in place would overwrite slots that older snapshots, like the
+    // one the runtime is following, can still read, so the remaining waypoints are copied out
+    Storage target = new Storage(Math.max(INITIAL_CAPACITY, (remaining+1)*2), remaining+1);
+    target.x[0] = x;
+    target.y[0] = y;
+    target.z[0] = z;
+    System.arraycopy(storage.x, index+1, target.x, 1, remaining);
+    System.arraycopy(storage.y, index+1, target.y, 1, remaining);
+    System.arraycopy(storage.z, index+1, target.z, 1, remaining);
+    System.arraycopy(storage.completion, index+1, target.completion, 1, remaining);
+
+    // Shifting path lengths instead of recalculating them
+    if (remaining > 0) {
+      double offset = distance(x, y, target.x[1], target.y[1])-storage.pathLength[index+1];
+      for (int i = 1; i <= remaining; i++) {
+        target.pathLength[i] = storage.pathLength[index+i]+offset;
+      }
+    }
+    return new WaypointPath(target, remaining+1, 0, version+1);
+  }
+
+  /**
+   * Returns the version of this snapshot, every change to the queue increases it
+   * @return Version number
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the current index
+   * @return Current index
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns the size of the path
+   * @return Number of waypoints
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the X of a waypoint without creating a Waypoint
+   * @param waypointIndex Target waypoint index
+   * @return Waypoint X
+   */
+  public double getX(int waypointIndex) {
+    checkIndex(waypointIndex);
+    return storage.x[waypointIndex];
+  }
+
+  /**
+   * Returns the Y of a waypoint without creating a Waypoint
+   * @param waypointIndex Target waypoint index
+   * @return Waypoint Y
+   */
+  public double getY(int waypointIndex) {
+    checkIndex(waypointIndex);
+    return storage.y[waypointIndex];
+  }
+
+  /**
+   * Returns the Z of a waypoint without creating a Waypoint
+   * @param waypointIndex Target waypoint index
+   * @return Waypoint Z
+   */
+  public double getZ(int waypointIndex) {
+    checkIndex(waypointIndex);
+    return storage.z[waypointIndex];
+  }
+
+  /**
+   * Returns the waypoint under the current index
+   * @return Current waypoint
+   */
+  public Waypoint getCurrentWaypoint() {
+    return getWaypoint(index);
+  }
+
+  /**
+   * Returns a specific waypoint with a custom index, this creates a new Waypoint so prefer
+   * getX(), getY(), and getZ() in code that runs every tick
+   * @param waypointIndex Target waypoint index
+   * @return Target waypoint
+   */
+  public Waypoint getWaypoint(int waypointIndex) {
+    checkIndex(waypointIndex);
+    return new Waypoint(storage.x[waypointIndex], storage.y[waypointIndex], storage.z[waypointIndex]);
+  }
+
+  /**
+   * Completes the future of a waypoint if it has one that is not done yet
+   * @param waypointIndex Index of the reached waypoint
+   */
+  public void complete(int waypointIndex) {
+    checkIndex(waypointIndex);
+    CompletableFuture<Waypoint> completion = storage.completion[waypointIndex];
+    if (completion != null && !completion.isDone()) {
+      completion.complete(getWaypoint(waypointIndex));
+    }
+  }
+
+  /**
+   * Cancels the futures of a range of waypoints that are not done yet, used when waypoints are
+   * removed before they are reached
+   * @param fromIndex First waypoint index, inclusive
+   * @param toIndex Last waypoint index, exclusive
+   */
+  public void cancel(int fromIndex, int toIndex) {
+    for (int i = fromIndex; i < toIndex; i++) {
+      CompletableFuture<Waypoint> completion = storage.completion[i];
+      if (completion != null && !completion.isDone()) {
+        completion.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Returns the distance along the path between two waypoints in constant time
+   * @param fromIndex Index of the first waypoint
+   * @param toIndex Index of the second waypoint
+   * @return Distance along the path
+   */
+  public double getPathLength(int fromIndex, int toIndex) {
+    checkIndex(fromIndex);
+    checkIndex(toIndex);
+    return storage.pathLength[toIndex]-storage.pathLength[fromIndex];
+  }
+
+  /**
+   * Makes sure an index is inside this snapshot, the storage may be larger than the snapshot
+   * @param waypointIndex Index to check
+   */
+  private void checkIndex(int waypointIndex) {
+    if (waypointIndex < 0 || waypointIndex >= size) {
+      throw new IndexOutOfBoundsException("Index: "+waypointIndex+", Size: "+size);
+    }
+  }
+
+  /**
+   * Returns the distance between 2 points
+   * @param x1 Input x
+   * @param y1 Input y
+   * @param x2 Input x
+   * @param y2 Input y
+   * @return Distance
+   */
+  private static double distance(double x1, double y1, double x2, double y2) {
+    double dx = x2-x1;
+    double dy = y2-y1;
+    return Math.sqrt(dx*dx+dy*dy);
+  }
+
+}
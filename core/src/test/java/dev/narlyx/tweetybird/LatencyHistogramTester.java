@@ -0,0 +1,84 @@
+package dev.narlyx.tweetybird;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTester {
+
+  /**
+   * Returns the top of the bucket a duration is counted in, a much longer second sample keeps
+   * the median from being clipped to the largest sample
+   * @param nanos Duration
+   * @return Median of the duration and the long sample
+   */
+  private long bucketTop(long nanos) {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(nanos);
+    histogram.record(1L << 35);
+    return histogram.getMedian();
+  }
+
+  @Test
+  public void bucketBoundaries() {
+    // Every duration below 16 has its own bucket
+    for (long nanos = 0; nanos < 16; nanos++) {
+      assertEquals(nanos, bucketTop(nanos));
+    }
+
+    // Each power of two starts a new bucket and the one before it ends the previous bucket
+    for (int exponent = 4; exponent < 35; exponent++) {
+      long start = 1L << exponent;
+      long width = Math.max(1, start/16);
+      assertEquals(start-1, bucketTop(start-1));
+      assertEquals(start+width-1, bucketTop(start));
+      assertEquals(start+width-1, bucketTop(start+width-1));
+      assertEquals(start+2*width-1, bucketTop(start+width));
+    }
+
+    // Durations from 2^36 up all land in the last bucket
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(1L << 37);
+    histogram.record(1L << 40);
+    assertEquals((1L << 36)-1, histogram.getMedian());
+    assertEquals((1L << 36)-1, histogram.getPercentile(100));
+    assertEquals(1L << 40, histogram.getMax());
+  }
+
+  @Test
+  public void percentilesWithinBucketWidth() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    int samples = 10000;
+    for (int i = 1; i <= samples; i++) {
+      histogram.record(i*1000L);
+    }
+
+    for (double percentile : new double[] {1, 10, 50, 90, 99, 99.9, 100}) {
+      long exact = (long) Math.ceil(samples*percentile/100)*1000L;
+      long measured = histogram.getPercentile(percentile);
+      assertTrue(percentile+" measured "+measured+" exact "+exact, measured >= exact);
+      assertTrue(percentile+" measured "+measured+" exact "+exact,
+          measured <= exact*1.0625);
+    }
+    assertEquals(samples, histogram.getCount());
+    assertEquals(samples*1000L, histogram.getMax());
+    assertEquals((samples+1)*500.0, histogram.getMean(), 1e-9);
+  }
+
+  @Test
+  public void resetForgetsSamples() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(5000);
+    histogram.record(-3);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getMean(), 0);
+    assertEquals(0, histogram.getMedian());
+
+    histogram.record(7);
+    assertEquals(1, histogram.getCount());
+    assertEquals(7, histogram.getMedian());
+  }
+}
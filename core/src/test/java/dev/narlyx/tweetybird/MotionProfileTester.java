@@ -0,0 +1,56 @@
+package dev.narlyx.tweetybird;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MotionProfileTester {
+
+  @Test
+  public void trapezoidalFollowsConstantAcceleration() {
+    MotionProfile profile = new MotionProfile(40, 80, 0);
+    double rampDistance = 40*40/(2*80.0);
+    for (double distance = 0.5; distance < rampDistance; distance += 0.25) {
+      assertEquals("v at "+distance, Math.sqrt(2*80*distance), profile.getVelocity(distance), 0.2);
+      assertEquals("a at "+distance, 80, profile.getAcceleration(distance), 1e-6);
+    }
+    assertEquals(40, profile.getVelocity(rampDistance+1), 0);
+    assertEquals(0, profile.getAcceleration(rampDistance+1), 0);
+  }
+
+  @Test
+  public void staysWithinLimits() {
+    double[][] limits = {{40, 80, 0}, {40, 80, 400}, {40, 80, 50}, {10, 200, 1000}};
+    for (double[] limit : limits) {
+      MotionProfile profile = new MotionProfile(limit[0], limit[1], limit[2]);
+      String name = limit[0]+" "+limit[1]+" "+limit[2];
+      double lastVelocity = 0;
+      double peakAcceleration = 0;
+      for (double distance = 0; distance < 60; distance += 0.05) {
+        double velocity = profile.getVelocity(distance);
+        assertTrue(name+" slowed down at "+distance, velocity >= lastVelocity);
+        assertTrue(name+" too fast at "+distance, velocity <= limit[0]);
+        peakAcceleration = Math.max(peakAcceleration, profile.getAcceleration(distance));
+        lastVelocity = velocity;
+      }
+      assertEquals(name, limit[0], lastVelocity, 0);
+      assertTrue(name+" peak acceleration "+peakAcceleration, peakAcceleration <= limit[1]+1e-6);
+    }
+  }
+
+  @Test
+  public void accelerationSignAlongPath() {
+    for (double jerk : new double[] {0, 400}) {
+      MotionProfile profile = new MotionProfile(40, 80, jerk);
+      double pathLength = 60;
+
+      // Speeding up, cruising, and slowing down
+      assertTrue(profile.getAcceleration(2, pathLength-2) > 0);
+      assertEquals(0, profile.getAcceleration(pathLength/2, pathLength/2), 0);
+      assertTrue(profile.getAcceleration(pathLength-2, 2) < 0);
+      assertEquals(profile.getAcceleration(2, pathLength-2),
+          -profile.getAcceleration(pathLength-2, 2), 0);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package dev.narlyx.tweetybird.Odometers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HeadingKalmanFilterTester {
+
+  @Test
+  public void learnsWheelScaleError() {
+    HeadingKalmanFilter filter = new HeadingKalmanFilter(0.02, 0.0001, Math.toRadians(0.5));
+    Random random = new Random(5);
+    double trueHeading = 0;
+    for (int tick = 0; tick < 3000; tick++) {
+      // Turning back and forth, the wheels see 3% less rotation than really happens
+      double rotation = 0.02*Math.sin(tick/100.0);
+      trueHeading += rotation;
+      filter.predict(rotation*0.97);
+
+      // The IMU is read every fifth tick and reports a wrapped, noisy heading
+      if (tick%5 == 0) {
+        double measured = trueHeading+random.nextGaussian()*Math.toRadians(0.5);
+        filter.correct(Math.atan2(Math.sin(measured), Math.cos(measured)));
+      }
+    }
+    assertEquals(trueHeading, filter.getHeading(), Math.toRadians(1));
+    assertEquals(0.03, filter.getScaleError(), 0.01);
+  }
+
+  @Test
+  public void keepsHeadingContinuous() {
+    HeadingKalmanFilter filter = new HeadingKalmanFilter(0.02, 0.0001, Math.toRadians(0.5));
+    for (int tick = 0; tick < 400; tick++) {
+      filter.predict(0.05);
+      double trueHeading = 0.05*(tick+1);
+      filter.correct(Math.atan2(Math.sin(trueHeading), Math.cos(trueHeading)));
+    }
+    // Twenty radians turned, the estimate keeps counting past the IMU's wrap around
+    assertEquals(20, filter.getHeading(), 1e-3);
+  }
+}
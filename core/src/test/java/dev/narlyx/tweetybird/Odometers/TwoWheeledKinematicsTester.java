@@ -0,0 +1,35 @@
+package dev.narlyx.tweetybird.Odometers;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TwoWheeledKinematicsTester {
+
+  @Test
+  public void turningInPlaceDoesNotMove() {
+    // Parallel wheel 5 right of center, perpendicular wheel 3 in front, 0.001 inches per tick
+    TwoWheeledKinematics kinematics = new TwoWheeledKinematics(5, 3, 0.001);
+    kinematics.update(0, 0, 0);
+    for (int i = 1; i <= 100; i++) {
+      double heading = Math.PI*i/100;
+      // Turning right moves the parallel wheel backwards and the perpendicular wheel right
+      kinematics.update((int) Math.round(-5*heading/0.001), (int) Math.round(3*heading/0.001),
+          heading);
+    }
+    assertEquals(0, kinematics.getX(), 0.01);
+    assertEquals(0, kinematics.getY(), 0.01);
+    assertEquals(Math.PI, kinematics.getZ(), 1e-9);
+  }
+
+  @Test
+  public void drivesInTheDirectionFaced() {
+    TwoWheeledKinematics kinematics = new TwoWheeledKinematics(5, 3, 0.5);
+    kinematics.update(0, 0, Math.PI/2);
+    kinematics.update(40, 0, Math.PI/2);
+    kinematics.update(40, 20, Math.PI/2);
+    // Facing right, forwards is positive x and right is negative y
+    assertEquals(20, kinematics.getX(), 1e-9);
+    assertEquals(-10, kinematics.getY(), 1e-9);
+  }
+}
@@ -0,0 +1,44 @@
+package dev.narlyx.tweetybird.Odometers;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class VelocityEstimatorTester {
+
+  @Test
+  public void handlesIrregularIntervals() {
+    VelocityEstimator estimator = new VelocityEstimator(0.05, 0);
+    long[] intervals = {5_000_000, 13_000_000, 8_000_000, 21_000_000, 2_000_000};
+    long time = 0;
+    for (int i = 0; i < 200; i++) {
+      time += intervals[i%intervals.length];
+      double seconds = time/1e9;
+      estimator.update(time, 10*seconds, -4*seconds, 0.5*seconds);
+    }
+    assertEquals(10, estimator.getVelocityX(), 1e-6);
+    assertEquals(-4, estimator.getVelocityY(), 1e-6);
+    assertEquals(0.5, estimator.getVelocityZ(), 1e-6);
+    assertEquals(time, estimator.getTimestamp());
+  }
+
+  @Test
+  public void ignoresRepeatedReads() {
+    VelocityEstimator estimator = new VelocityEstimator(0, 0.002);
+    estimator.update(0, 0, 0, 0);
+    estimator.update(10_000_000, 0, 1, 0);
+    // A second read of the same cached values a moment later
+    estimator.update(10_100_000, 0, 1, 0);
+    assertEquals(100, estimator.getVelocityY(), 1e-9);
+  }
+
+  @Test
+  public void convertsToRobotRelative() {
+    VelocityEstimator estimator = new VelocityEstimator(0, 0);
+    estimator.update(0, 0, 0, Math.PI/2);
+    estimator.update(1_000_000_000, 3, 0, Math.PI/2);
+    // Facing positive x, so moving towards positive x is straight ahead
+    assertEquals(3, estimator.getAxialVelocity(), 1e-9);
+    assertEquals(0, estimator.getLateralVelocity(), 1e-9);
+  }
+}
@@ -0,0 +1,166 @@
+package dev.narlyx.tweetybird;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class PathCacheTester {
+
+  /**
+   * Creates a temporary file that is deleted when the tests end
+   * @return Empty file
+   * @throws IOException If the file can not be created
+   */
+  private File createFile() throws IOException {
+    File file = File.createTempFile("tweetyBirdPaths", ".bin");
+    file.deleteOnExit();
+    return file;
+  }
+
+  /**
+   * Writes the cache from createCache() to a temporary file
+   * @return File holding the cache
+   * @throws IOException If the file can not be written
+   */
+  private File createCacheFile() throws IOException {
+    File file = createFile();
+    createCache().write(file);
+    return file;
+  }
+
+  /**
+   * Builds a cache with a straight path and a spline
+   * @return Cache
+   */
+  private PathCache createCache() {
+    PathCache cache = new PathCache(3);
+    cache.addPath("square")
+        .addWaypoint(0, 24, 0)
+        .addWaypoint(24, 24, 90)
+        .addWaypoint(24, 0, 180);
+    cache.addPath("curve").addSpline(new Spline.Builder()
+        .addPoint(0, 0, 0)
+        .addPoint(12, 24, 45)
+        .addPoint(36, 24, 90)
+        .build(), 2);
+    return cache;
+  }
+
+  @Test
+  public void readsWhatWasWritten() throws IOException {
+    PathCache cache = createCache();
+    File file = createFile();
+    cache.write(file);
+
+    PathCache loaded = PathCache.read(file, 3);
+    assertEquals(cache.getPathNames(), loaded.getPathNames());
+    for (String name : cache.getPathNames()) {
+      PathCache.Path expected = cache.getPath(name);
+      PathCache.Path actual = loaded.getPath(name);
+      assertEquals(name, expected.getSize(), actual.getSize());
+      for (int i = 0; i < expected.getSize(); i++) {
+        assertEquals(expected.getX(i), actual.getX(i), 0);
+        assertEquals(expected.getY(i), actual.getY(i), 0);
+        assertEquals(expected.getZ(i), actual.getZ(i), 0);
+        assertEquals(expected.getLength(i), actual.getLength(i), 0);
+      }
+    }
+    assertNull(loaded.getPath("missing"));
+  }
+
+  @Test
+  public void readsMotionProfile() throws IOException {
+    PathCache cache = createCache();
+    MotionProfile expected = new MotionProfile(40, 60, 300);
+    cache.setMotionProfile(expected);
+    File file = createFile();
+    cache.write(file);
+
+    MotionProfile actual = PathCache.read(file, 3, 40, 60, 300).getMotionProfile();
+    assertEquals(expected.getMaxJerk(), actual.getMaxJerk(), 0);
+    for (double distance = 0; distance < 40; distance += 0.5) {
+      assertEquals(expected.getVelocity(distance), actual.getVelocity(distance), 0);
+      assertEquals(expected.getAcceleration(distance), actual.getAcceleration(distance), 0);
+    }
+    assertNull(PathCache.read(createCacheFile(), 3).getMotionProfile());
+  }
+
+  @Test
+  public void rejectsDifferentMotionProfile() throws IOException {
+    PathCache cache = createCache();
+    cache.setMotionProfile(new MotionProfile(40, 60, 300));
+    File file = createFile();
+    cache.write(file);
+
+    double[][] limits = {{50, 60, 300}, {40, 50, 300}, {40, 60, 200}, {40, 60, 0}};
+    for (double[] limit : limits) {
+      try {
+        PathCache.read(file, 3, limit[0], limit[1], limit[2]);
+        fail("Cache with a different profile was read");
+      } catch (IOException e) {
+        // Expected
+      }
+    }
+    try {
+      PathCache.read(file, 3);
+      fail("Cache with a profile was read without one");
+    } catch (IOException e) {
+      // Expected
+    }
+    try {
+      PathCache.read(createCacheFile(), 3, 40, 60, 300);
+      fail("Cache without a profile was read with one");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void matchesAddedWaypoints() {
+    PathCache.Path compiled = createCache().getPath("square");
+    WaypointPath expected = WaypointPath.of(0, 0, 0)
+        .withAdded(0, 24, 0)
+        .withAdded(24, 24, Math.PI/2)
+        .withAdded(24, 0, Math.PI);
+    WaypointPath actual = WaypointPath.of(0, 0, 0).withAdded(compiled);
+
+    assertEquals(expected.getSize(), actual.getSize());
+    assertEquals(1, actual.getVersion());
+    for (int i = 0; i < expected.getSize(); i++) {
+      assertEquals(expected.getX(i), actual.getX(i), 0);
+      assertEquals(expected.getZ(i), actual.getZ(i), 0);
+      assertEquals(expected.getPathLength(0, i), actual.getPathLength(0, i), 1e-9);
+    }
+  }
+
+  @Test
+  public void rejectsStaleAndDamagedFiles() throws IOException {
+    File file = createFile();
+    createCache().write(file);
+    try {
+      PathCache.read(file, 4);
+      fail("Stale cache was read");
+    } catch (IOException e) {
+      // Expected
+    }
+
+    try (RandomAccessFile damaged = new RandomAccessFile(file, "rw")) {
+      damaged.seek(PathCache.HEADER_SIZE+20);
+      int value = damaged.read();
+      damaged.seek(PathCache.HEADER_SIZE+20);
+      damaged.write(value^1);
+    }
+    try {
+      PathCache.read(file, 3);
+      fail("Damaged cache was read");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+}
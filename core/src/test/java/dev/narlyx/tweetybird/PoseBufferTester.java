@@ -0,0 +1,35 @@
+package dev.narlyx.tweetybird;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PoseBufferTester {
+
+  @Test
+  public void readsAreNeverTorn() throws InterruptedException {
+    PoseBuffer buffer = new PoseBuffer();
+    buffer.publish(0, 0, 0, 0);
+    Thread writer = new Thread(() -> {
+      for (long i = 1; i <= 2_000_000; i++) {
+        buffer.publish(i, i, 2*i, 3*i);
+      }
+    });
+    writer.start();
+
+    // Every value of a read has to come from the same publish
+    Pose pose = new Pose();
+    long lastTimestamp = 0;
+    while (writer.isAlive()) {
+      long timestamp = buffer.read(pose);
+      assertEquals(timestamp, pose.getX(), 0);
+      assertEquals(2*timestamp, pose.getY(), 0);
+      assertEquals(3*timestamp, pose.getZ(), 0);
+      assertTrue(timestamp >= lastTimestamp);
+      lastTimestamp = timestamp;
+    }
+    writer.join();
+    assertEquals(2_000_001, buffer.getPublishCount());
+  }
+}
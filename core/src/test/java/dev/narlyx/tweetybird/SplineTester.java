@@ -0,0 +1,73 @@
+package dev.narlyx.tweetybird;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class SplineTester {
+
+  @Test
+  public void passesThroughControlPoints() {
+    for (Spline.Type type : Spline.Type.values()) {
+      Spline spline = new Spline.Builder()
+          .setType(type)
+          .addPoint(0, 0, 0)
+          .addPoint(12, 24, 45)
+          .addPoint(36, 24, 90)
+          .build();
+      assertEquals(type.name(), 0, spline.getX(0), 1e-9);
+      assertEquals(type.name(), 0, spline.getY(0), 1e-9);
+      assertEquals(type.name(), 36, spline.getX(spline.getLength()), 1e-9);
+      assertEquals(type.name(), 24, spline.getY(spline.getLength()), 1e-9);
+      assertEquals(type.name(), Math.PI/2, spline.getZ(spline.getLength()), 1e-9);
+    }
+  }
+
+  @Test
+  public void rejectsInvalidSpacing() {
+    Spline.Builder builder = new Spline.Builder()
+        .addPoint(0, 0, 0)
+        .addPoint(0, 24, 0)
+        .setResolution(0);
+    try {
+      builder.build();
+      fail("Spline with a resolution of 0 was built");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    Spline spline = builder.setResolution(0.25).build();
+    for (double spacing : new double[] {0, -1, Double.NaN}) {
+      try {
+        WaypointPath.of(0, 0, 0).withAdded(spline, spacing);
+        fail("Spline added to a path with a spacing of "+spacing);
+      } catch (IllegalArgumentException e) {
+        // Expected
+      }
+      try {
+        new PathCache(0).addPath("spline").addSpline(spline, spacing);
+        fail("Spline added to a cached path with a spacing of "+spacing);
+      } catch (IllegalArgumentException e) {
+        // Expected
+      }
+    }
+  }
+
+  @Test
+  public void samplesByArcLength() {
+    Spline line = new Spline.Builder()
+        .addPoint(0, 0, 0)
+        .addPoint(0, 10, 0)
+        .addPoint(0, 30, 0)
+        .build();
+    assertEquals(30, line.getLength(), 1e-6);
+
+    // Uneven control point spacing must not affect where a distance lands
+    for (double distance = 0; distance <= 30; distance += 2.5) {
+      assertEquals(distance, line.getY(distance), 0.05);
+      assertEquals(0, line.getTangent(distance), 1e-6);
+      assertEquals(0, line.getCurvature(distance), 1e-6);
+    }
+  }
+}
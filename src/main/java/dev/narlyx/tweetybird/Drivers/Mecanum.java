@@ -11,6 +11,17 @@ public class Mecanum implements TweetyBird.Driver {
 
   // Imported from builder
   private final DcMotor frontLeft, frontRight, backLeft, backRight;
+  private final double powerEpsilon;
+
+  // Cache of what was last sent to each motor, in the order front left, front right,
+  // back left, back right
+  private final DcMotor[] motors;
+  private final double[] lastPower = new double[4];
+  private final DcMotor.ZeroPowerBehavior[] lastZeroPowerBehavior = new DcMotor.ZeroPowerBehavior[4];
+
+  // Stats
+  private volatile long writesIssued = 0;
+  private volatile long writesSuppressed = 0;
 
   /**
    * Constructor used to setup all variables from builder.
@@ -21,6 +32,9 @@ public class Mecanum implements TweetyBird.Driver {
     this.frontRight = builder.frontRight;
     this.backLeft = builder.backLeft;
     this.backRight = builder.backRight;
+    this.powerEpsilon = builder.powerEpsilon;
+    this.motors = new DcMotor[] {frontLeft, frontRight, backLeft, backRight};
+    resetCache();
   }
 
   /**
@@ -31,7 +45,7 @@ public class Mecanum implements TweetyBird.Driver {
    * @param speed Value from 0 to 1 to set how fast the bot will cary out axial and lateral
    */
   @Override
-  public void setHeading(double axial, double lateral, double yaw, double speed) {
+  public synchronized void setHeading(double axial, double lateral, double yaw, double speed) {
     // Fetching values
     double frontLeftPower  = ((axial + lateral) * speed) + (yaw);
     double frontRightPower = ((axial - lateral) * speed) - (yaw);
@@ -39,23 +53,14 @@ public class Mecanum implements TweetyBird.Driver {
     double backRightPower  = ((axial + lateral) * speed) - (yaw);
 
     // Powering motors
-    frontLeft.setPower(frontLeftPower);
-    frontRight.setPower(frontRightPower);
-    backLeft.setPower(backLeftPower);
-    backRight.setPower(backRightPower);
+    setPower(0, frontLeftPower);
+    setPower(1, frontRightPower);
+    setPower(2, backLeftPower);
+    setPower(3, backRightPower);
 
     // Setting correct mode
-    if (frontLeft.getZeroPowerBehavior()== DcMotor.ZeroPowerBehavior.BRAKE) {
-      frontLeft.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);
-    }
-    if (frontRight.getZeroPowerBehavior()== DcMotor.ZeroPowerBehavior.BRAKE) {
-      frontRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);
-    }
-    if (backLeft.getZeroPowerBehavior()== DcMotor.ZeroPowerBehavior.BRAKE) {
-      backLeft.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);
-    }
-    if (backRight.getZeroPowerBehavior()== DcMotor.ZeroPowerBehavior.BRAKE) {
-      backRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);
+    for (int i = 0; i < motors.length; i++) {
+      setZeroPowerBehavior(i, DcMotor.ZeroPowerBehavior.FLOAT);
     }
   }
 
@@ -63,25 +68,75 @@ public class Mecanum implements TweetyBird.Driver {
    * This method will stop all of the motors and attempt to lock them in place
    */
   @Override
-  public void stopAndHold() {
+  public synchronized void stopAndHold() {
     // Stopping motors
-    frontLeft.setPower(0);
-    frontRight.setPower(0);
-    backLeft.setPower(0);
-    backRight.setPower(0);
+    for (int i = 0; i < motors.length; i++) {
+      setPower(i, 0);
+    }
 
     // Holding
-    if (frontLeft.getZeroPowerBehavior()== DcMotor.ZeroPowerBehavior.FLOAT) {
-      frontLeft.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+    for (int i = 0; i < motors.length; i++) {
+      setZeroPowerBehavior(i, DcMotor.ZeroPowerBehavior.BRAKE);
     }
-    if (frontRight.getZeroPowerBehavior()== DcMotor.ZeroPowerBehavior.FLOAT) {
-      frontRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+  }
+
+  /**
+   * Forgets what was last sent to the motors so the next command writes every value,
+   * call this if something other than this driver changes the motors
+   */
+  public synchronized void resetCache() {
+    for (int i = 0; i < motors.length; i++) {
+      lastPower[i] = Double.NaN;
+      lastZeroPowerBehavior[i] = null;
     }
-    if (backLeft.getZeroPowerBehavior()== DcMotor.ZeroPowerBehavior.FLOAT) {
-      backLeft.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+  }
+
+  /**
+   * Returns how many motor writes were sent to the hardware
+   * @return Write count
+   */
+  public long getWritesIssued() {
+    return writesIssued;
+  }
+
+  /**
+   * Returns how many motor writes were skipped because the value had not changed
+   * @return Skipped write count
+   */
+  public long getWritesSuppressed() {
+    return writesSuppressed;
+  }
+
+  /**
+   * Sets the power of a motor only if it changed by more than the epsilon,
+   * stopping a moving motor is always sent
+   * @param motor Index into the motor cache
+   * @param power New power
+   */
+  private void setPower(int motor, double power) {
+    double last = lastPower[motor];
+    boolean stopping = power == 0 && last != 0;
+    if (stopping || Double.isNaN(last) || Math.abs(power-last) > powerEpsilon) {
+      motors[motor].setPower(power);
+      lastPower[motor] = power;
+      writesIssued += 1;
+    } else {
+      writesSuppressed += 1;
     }
-    if (backRight.getZeroPowerBehavior()== DcMotor.ZeroPowerBehavior.FLOAT) {
-      backRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+  }
+
+  /**
+   * Sets the zero power behavior of a motor only if it is different from the last one sent
+   * @param motor Index into the motor cache
+   * @param behavior New zero power behavior
+   */
+  private void setZeroPowerBehavior(int motor, DcMotor.ZeroPowerBehavior behavior) {
+    if (lastZeroPowerBehavior[motor] != behavior) {
+      motors[motor].setZeroPowerBehavior(behavior);
+      lastZeroPowerBehavior[motor] = behavior;
+      writesIssued += 1;
+    } else {
+      writesSuppressed += 1;
     }
   }
 
@@ -137,6 +192,19 @@ public class Mecanum implements TweetyBird.Driver {
       return this;
     }
 
+    private double powerEpsilon = 0.001;
+    /**
+     * OPTIONAL
+     * Motor powers that changed by less than this amount are not sent to the hardware again,
+     * the default value is 0.001.
+     * @param powerEpsilon Power difference from 0 to 1
+     * @return Updated builder
+     */
+    public Builder setPowerEpsilon(double powerEpsilon) {
+      this.powerEpsilon = powerEpsilon;
+      return this;
+    }
+
     /**
      * This will construct and return a new Odometer
      * @return ThreeWheeled Odometer
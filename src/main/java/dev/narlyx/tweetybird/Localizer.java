@@ -0,0 +1,87 @@
+package dev.narlyx.tweetybird;
+
+/**
+ * The localization stage of the pipelined runtime. It reads the odometer at its own rate and
+ * publishes timestamped poses for the control stage, so the odometry keeps integrating at a
+ * steady rate however long planning, driver writes, and logging take.
+ */
+public class Localizer extends Thread {
+
+  // References
+  private final TweetyBird tweetyBird;
+  protected final LoopScheduler scheduler;
+  protected final PoseBuffer poseBuffer = new PoseBuffer();
+  protected final PoseBuffer velocityBuffer;
+  private final TweetyBird.VelocityOdometer velocityOdometer;
+
+  // Cache
+  private final Pose pose = new Pose();
+  private final Pose velocity = new Pose();
+  private boolean stepped = false;
+
+  /**
+   * Constructor
+   * @param tweetyBird Pull configuration and variables
+   * @param velocityOdometer Odometer to publish velocity from, null to publish only the pose
+   */
+  public Localizer(TweetyBird tweetyBird, TweetyBird.VelocityOdometer velocityOdometer) {
+    super("TweetyBird localizer");
+    this.tweetyBird = tweetyBird;
+    this.scheduler = new LoopScheduler(tweetyBird.localizationFrequency, tweetyBird.clock);
+    this.velocityOdometer = velocityOdometer;
+    this.velocityBuffer = velocityOdometer != null ? new PoseBuffer() : null;
+  }
+
+  /**
+   * Main method
+   */
+  @Override
+  public void run() {
+    tweetyBird.log("Localizer thread started...");
+    if (tweetyBird.opMode != null) { // FTC environment
+      tweetyBird.opMode.waitForStart();
+      scheduler.start();
+      while (tweetyBird.opMode.opModeIsActive()&&!Thread.currentThread().isInterrupted()) {
+        localize();
+        scheduler.awaitNextTick();
+      }
+    } else { // Test environment
+      scheduler.start();
+      while (!Thread.currentThread().isInterrupted()) {
+        localize();
+        scheduler.awaitNextTick();
+      }
+    }
+  }
+
+  /**
+   * Runs a single localization tick on the calling thread
+   */
+  protected void step() {
+    if (!stepped) {
+      stepped = true;
+      scheduler.start();
+    } else {
+      scheduler.recordTick();
+    }
+    localize();
+  }
+
+  /**
+   * Reads the odometer and publishes the pose, and the velocity if it is used
+   */
+  private void localize() {
+    long timestamp = tweetyBird.clock.nanoTime();
+    tweetyBird.odometer.onTickStart();
+    try {
+      tweetyBird.odometer.getPose(pose);
+    } finally {
+      tweetyBird.odometer.onTickEnd();
+    }
+    poseBuffer.publish(timestamp, pose.getX(), pose.getY(), pose.getZ());
+    if (velocityOdometer != null) {
+      velocityOdometer.getVelocity(velocity);
+      velocityBuffer.publish(timestamp, velocity.getX(), velocity.getY(), velocity.getZ());
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package dev.narlyx.tweetybird.Odometers;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+
+import java.util.List;
+
+/**
+ * Handles manual bulk caching for the odometers. While a TweetyBird tick is reading the
+ * odometer the cache is cleared once at its start, outside of a tick every read clears it so
+ * reads from the OpMode always see fresh encoder values, also after TweetyBird has stopped.
+ */
+public class BulkReadCache {
+
+  // Configuration
+  private final LynxModule[] modules;
+
+  // Cache
+  private volatile boolean inTick = false;
+
+  /**
+   * Constructor, this switches the passed hubs to manual bulk caching
+   * @param modules Hubs the encoders are plugged into, null to read each encoder on its own
+   */
+  public BulkReadCache(List<LynxModule> modules) {
+    if (modules != null) {
+      this.modules = modules.toArray(new LynxModule[0]);
+      for (LynxModule module : this.modules) {
+        module.setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+      }
+    } else {
+      this.modules = new LynxModule[0];
+    }
+  }
+
+  /**
+   * Starts a tick, the cache is cleared once and kept until the tick ends
+   */
+  public void onTickStart() {
+    inTick = true;
+    clear();
+  }
+
+  /**
+   * Ends a tick, reads after this clear the cache again
+   */
+  public void onTickEnd() {
+    inTick = false;
+  }
+
+  /**
+   * Called before the encoders are read, clears the cache unless a tick already did
+   */
+  public void beforeRead() {
+    if (!inTick) {
+      clear();
+    }
+  }
+
+  /**
+   * Clears the bulk read cache of every hub
+   */
+  private void clear() {
+    for (LynxModule module : modules) {
+      module.clearBulkCache();
+    }
+  }
+}
@@ -1,19 +1,28 @@
 package dev.narlyx.tweetybird.Odometers;
 
+import com.qualcomm.hardware.lynx.LynxModule;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
 
+import java.util.List;
+
+import dev.narlyx.tweetybird.Clock;
+import dev.narlyx.tweetybird.Pose;
 import dev.narlyx.tweetybird.TweetyBird;
 
 /**
- * This is an example odometer for the common three wheel odometer setup.
+ * This is an example odometer for the common three wheel odometer setup, every encoder read is
+ * timestamped so it can also estimate the robot's velocity.
  */
-public class ThreeWheeled implements TweetyBird.Odometer {
+public class ThreeWheeled implements TweetyBird.VelocityOdometer {
 
   // Imported variables from builder
   private final DcMotor leftEncoder, rightEncoder, middleEncoder;
   private final boolean flipLeftEncoder, flipRightEncoder, flipMiddleEncoder;
-  private final double sideEncoderDistance, middleEncoderOffset, inchesPerTick;
+  private final BulkReadCache bulkReadCache;
+  private final ThreeWheeledKinematics kinematics;
+  private final VelocityEstimator velocityEstimator;
+  private final Clock clock;
 
   /**
    * Constructor used to setup all variables from builder.
@@ -26,12 +35,17 @@ public class ThreeWheeled implements TweetyBird.Odometer {
     this.flipLeftEncoder = builder.flipLeftEncoder;
     this.flipRightEncoder = builder.flipRightEncoder;
     this.flipMiddleEncoder = builder.flipMiddleEncoder;
-    this.sideEncoderDistance = builder.sideEncoderDistance;
-    this.middleEncoderOffset = builder.middleEncoderOffset;
     double encoderWheelRadius = builder.encoderWheelRadius;
     double encoderTicksPerRotation = builder.encoderTicksPerRotation;
 
-    inchesPerTick = 2.0*Math.PI*(encoderWheelRadius / encoderTicksPerRotation);
+    double inchesPerTick = 2.0*Math.PI*(encoderWheelRadius / encoderTicksPerRotation);
+    kinematics = new ThreeWheeledKinematics(builder.sideEncoderDistance,
+        builder.middleEncoderOffset, inchesPerTick);
+    velocityEstimator = new VelocityEstimator(builder.velocityTimeConstant,
+        builder.velocityMinimumInterval);
+    clock = builder.clock;
+
+    bulkReadCache = new BulkReadCache(builder.bulkReadModules);
   }
 
   // Cache
@@ -43,39 +57,52 @@ public class ThreeWheeled implements TweetyBird.Odometer {
   private double yOffset = 0;
   private double zOffset = 0;
 
-  private int lastLeftPos = 0;
-  private int lastRightPos = 0;
-  private int lastMiddlePos = 0;
+  /**
+   * Clears the bulk read cache of every hub so the encoder reads of this tick fetch fresh
+   * values in a single transaction per hub. This is called by TweetyBird once per tick.
+   */
+  @Override
+  public void onTickStart() {
+    bulkReadCache.onTickStart();
+  }
+
+  /**
+   * Lets reads outside of TweetyBird's ticks clear the bulk read cache again. This is called
+   * by TweetyBird once per tick.
+   */
+  @Override
+  public void onTickEnd() {
+    bulkReadCache.onTickEnd();
+  }
 
   /**
    * An internal method used to update all cached values before returning anything.
    */
   private void update() {
+    bulkReadCache.beforeRead();
+
     int rawLeftPos = leftEncoder.getCurrentPosition()*(flipLeftEncoder?-1:1);
     int rawRightPos = rightEncoder.getCurrentPosition()*(flipRightEncoder?-1:1);
     int rawMiddlePos = middleEncoder.getCurrentPosition()*(flipMiddleEncoder?-1:1);
 
-    int leftPos = (rawLeftPos)-lastLeftPos;
-    int rightPos = (rawRightPos)-lastRightPos;
-    int middlePos = (rawMiddlePos)-lastMiddlePos;
-
-    lastLeftPos = rawLeftPos;
-    lastRightPos = rawRightPos;
-    lastMiddlePos = rawMiddlePos;
+    long timestamp = clock.nanoTime();
 
-    double initialZ = inchesPerTick*((rightPos-leftPos)/sideEncoderDistance);
-    double initialY = inchesPerTick*((leftPos+rightPos)/2.0);
-    double initialX = inchesPerTick*(middlePos-(rightPos-leftPos)*(middleEncoderOffset/sideEncoderDistance));
-
-    Z -= initialZ;
-    double theta = Z+(initialZ/2.0);
-    double relativeY = initialY*Math.cos(theta)-initialX*Math.sin(theta);
-    double relativeX = initialY*Math.sin(theta)+initialX*Math.cos(theta);
-
-    X += relativeX;
-    Y += relativeY;
+    kinematics.update(rawLeftPos, rawRightPos, rawMiddlePos);
+    onSample(timestamp, kinematics);
+    X = kinematics.getX();
+    Y = kinematics.getY();
+    Z = kinematics.getZ();
+    velocityEstimator.update(timestamp, X, Y, Z);
   }
 
+  /**
+   * Called after every encoder sample is added and before the position is read from it,
+   * subclasses can correct the position here using other sensors.
+   * @param timestamp Time of the sample in nanoseconds from the configured clock
+   * @param kinematics Position math holding the updated position
+   */
+  protected void onSample(long timestamp, ThreeWheeledKinematics kinematics) {}
+
   /**
    * Returns estimated X (lateral) coordinate.
    * @return Unit of measurement
@@ -106,6 +133,47 @@ public class ThreeWheeled implements TweetyBird.Odometer {
     return Z-zOffset;
   }
 
+  /**
+   * Fills the passed pose with the estimated X, Y, and Z coordinates from a single update.
+   * @param pose Pose to be filled
+   */
+  @Override
+  public void getPose(Pose pose) {
+    update();
+    pose.set(X-xOffset, Y-yOffset, Z-zOffset);
+  }
+
+  /**
+   * Fills the passed pose with the field relative velocity from the latest samples, the
+   * encoders are not read again.
+   * @param velocity Pose to be filled
+   */
+  @Override
+  public void getVelocity(Pose velocity) {
+    velocity.set(velocityEstimator.getVelocityX(), velocityEstimator.getVelocityY(),
+        velocityEstimator.getVelocityZ());
+  }
+
+  /**
+   * Fills the passed pose with the robot relative velocity from the latest samples, the
+   * encoders are not read again.
+   * @param velocity Pose to be filled
+   */
+  @Override
+  public void getRobotVelocity(Pose velocity) {
+    velocity.set(velocityEstimator.getLateralVelocity(), velocityEstimator.getAxialVelocity(),
+        velocityEstimator.getVelocityZ());
+  }
+
+  /**
+   * Returns when the newest sample used by the velocity estimate was taken.
+   * @return Nanoseconds from the configured clock
+   */
+  @Override
+  public long getTimestamp() {
+    return velocityEstimator.getTimestamp();
+  }
+
   /**
    * Will reset the estimated position based on imputed values.
    * @param x Lateral unit of measurement
@@ -114,9 +182,10 @@ public class ThreeWheeled implements TweetyBird.Odometer {
    */
   @Override
   public void resetTo(double x, double y, double z) {
-    xOffset = getX()+xOffset-x;
-    yOffset = getY()+yOffset-y;
-    zOffset = getZ()+zOffset-z;
+    update();
+    xOffset = X-x;
+    yOffset = Y-y;
+    zOffset = Z-z;
   }
 
   /**
@@ -249,6 +318,63 @@ public class ThreeWheeled implements TweetyBird.Odometer {
       return this;
     }
 
+    private List<LynxModule> bulkReadModules = null;
+    /**
+     * OPTIONAL
+     * Passing your hubs here (hardwareMap.getAll(LynxModule.class)) will switch them to manual
+     * bulk caching so all three encoders are read in a single transaction per hub each tick,
+     * TweetyBird will clear the cache once at the start of every tick. If your own code also
+     * reads from these hubs it will see the cached values until the next tick.
+     * Without this each encoder is read on its own.
+     * @param bulkReadModules Hubs the encoders are plugged into
+     * @return Updated builder
+     */
+    public Builder setBulkReadModules(List<LynxModule> bulkReadModules) {
+      this.bulkReadModules = bulkReadModules;
+      return this;
+    }
+
+    private double velocityTimeConstant = 0.05;
+    /**
+     * OPTIONAL
+     * How strongly the velocity estimate is smoothed, after this many seconds the estimate has
+     * covered about 63% of a sudden change, zero turns smoothing off,
+     * the default value is 0.05 seconds.
+     * @param velocityTimeConstant Seconds
+     * @return Updated builder
+     */
+    public Builder setVelocityTimeConstant(double velocityTimeConstant) {
+      this.velocityTimeConstant = velocityTimeConstant;
+      return this;
+    }
+
+    private double velocityMinimumInterval = 0.002;
+    /**
+     * OPTIONAL
+     * Reads closer together than this are not used for the velocity estimate, this stops the
+     * repeated reads of a cached bulk read from looking like the robot stopped,
+     * the default value is 0.002 seconds.
+     * @param velocityMinimumInterval Seconds
+     * @return Updated builder
+     */
+    public Builder setVelocityMinimumInterval(double velocityMinimumInterval) {
+      this.velocityMinimumInterval = velocityMinimumInterval;
+      return this;
+    }
+
+    private Clock clock = System::nanoTime;
+    /**
+     * OPTIONAL
+     * The monotonic clock used to timestamp encoder reads,
+     * the default value is System.nanoTime().
+     * @param clock Time source in nanoseconds
+     * @return Updated builder
+     */
+    public Builder setClock(Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+
     /**
      * This will construct and return a new Odometer
      * @return ThreeWheeled Odometer
@@ -0,0 +1,322 @@
+package dev.narlyx.tweetybird.Odometers;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+
+import java.util.List;
+
+import dev.narlyx.tweetybird.Clock;
+
+/**
+ * A three wheel odometer that keeps its heading accurate with an IMU. Every tick the wheels
+ * move the heading, and every few ticks an IMU read corrects it through a small Kalman filter
+ * that also learns the wheels' scale error, so the slow I2C read is not paid on every tick.
+ */
+public class ThreeWheeledIMU extends ThreeWheeled {
+
+  // Imported variables from builder
+  private final IMU imu;
+  private final long imuIntervalNanos;
+  private final HeadingKalmanFilter filter;
+
+  // Cache
+  private boolean started = false;
+  private long lastImuRead = 0;
+  private double lastHeading = 0;
+  private double imuOffset = 0;
+
+  /**
+   * Constructor used to setup all variables from builder.
+   * @param builder Passed builder
+   */
+  public ThreeWheeledIMU(ThreeWheeledIMU.Builder builder) {
+    super(builder);
+    this.imu = builder.imu;
+    this.imuIntervalNanos = (long) (builder.imuInterval*1e9);
+    this.filter = new HeadingKalmanFilter(builder.wheelHeadingNoise, builder.wheelScaleNoise,
+        Math.toRadians(builder.imuHeadingNoise));
+  }
+
+  /**
+   * Fuses the wheel rotation of the new sample with the IMU and writes the result back, the
+   * IMU is only read once the configured interval has passed.
+   * @param timestamp Time of the sample in nanoseconds from the configured clock
+   * @param kinematics Position math holding the updated position
+   */
+  @Override
+  protected void onSample(long timestamp, ThreeWheeledKinematics kinematics) {
+    if (!started) {
+      started = true;
+      lastHeading = kinematics.getZ();
+      filter.reset(lastHeading);
+      imuOffset = lastHeading-readIMU();
+      lastImuRead = timestamp;
+      return;
+    }
+
+    filter.predict(kinematics.getZ()-lastHeading);
+    if (timestamp-lastImuRead >= imuIntervalNanos) {
+      lastImuRead = timestamp;
+      filter.correct(readIMU()+imuOffset);
+    }
+    lastHeading = filter.getHeading();
+    kinematics.setZ(lastHeading);
+  }
+
+  /**
+   * Reads the IMU's yaw and flips it to TweetyBird's direction, the IMU counts up turning left
+   * while TweetyBird counts up turning right.
+   * @return Heading in radians
+   */
+  private double readIMU() {
+    return -imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.RADIANS);
+  }
+
+  /**
+   * Returns the wheel scale error learned from the IMU, useful for tuning the side encoder
+   * distance, 0.01 means the wheels report about 1% less rotation than really happened.
+   * @return Scale error
+   */
+  public double getWheelScaleError() {
+    return filter.getScaleError();
+  }
+
+  /**
+   * Used to configure and start the odometer
+   */
+  public static class Builder extends ThreeWheeled.Builder {
+    private IMU imu = null;
+    /**
+     * REQUIRED
+     * Defines the IMU used to correct the heading, it must already be initialized with the
+     * hub's orientation.
+     * @param imu IMU reference
+     * @return Updated builder
+     */
+    public Builder setIMU(IMU imu) {
+      this.imu = imu;
+      return this;
+    }
+
+    private double imuInterval = 0.05;
+    /**
+     * OPTIONAL
+     * The shortest time between IMU reads, the wheels carry the heading in between,
+     * the default value is 0.05 seconds.
+     * @param imuInterval Seconds
+     * @return Updated builder
+     */
+    public Builder setIMUInterval(double imuInterval) {
+      this.imuInterval = imuInterval;
+      return this;
+    }
+
+    private double imuHeadingNoise = 0.5;
+    /**
+     * OPTIONAL
+     * How far off a single IMU heading read can be, lower values trust the IMU more,
+     * the default value is 0.5 degrees.
+     * @param imuHeadingNoise Degrees
+     * @return Updated builder
+     */
+    public Builder setIMUHeadingNoise(double imuHeadingNoise) {
+      this.imuHeadingNoise = imuHeadingNoise;
+      return this;
+    }
+
+    private double wheelHeadingNoise = 0.02;
+    /**
+     * OPTIONAL
+     * How far off the wheel heading gets per radian turned, lower values trust the wheels more,
+     * the default value is 0.02.
+     * @param wheelHeadingNoise Radians of error per radian turned
+     * @return Updated builder
+     */
+    public Builder setWheelHeadingNoise(double wheelHeadingNoise) {
+      this.wheelHeadingNoise = wheelHeadingNoise;
+      return this;
+    }
+
+    private double wheelScaleNoise = 0.0001;
+    /**
+     * OPTIONAL
+     * How quickly the learned wheel scale error may change per tick,
+     * the default value is 0.0001.
+     * @param wheelScaleNoise Scale change per tick
+     * @return Updated builder
+     */
+    public Builder setWheelScaleNoise(double wheelScaleNoise) {
+      this.wheelScaleNoise = wheelScaleNoise;
+      return this;
+    }
+
+    // Three wheel options, overridden so they can be called in any order with the IMU options
+
+    /**
+     * See ThreeWheeled.Builder.setLeftEncoder
+     * @param leftEncoder DCMotor reference to the encoder
+     * @return Updated builder
+     */
+    @Override
+    public Builder setLeftEncoder(DcMotor leftEncoder) {
+      super.setLeftEncoder(leftEncoder);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setFlipLeftEncoder
+     * @param flipLeftEncoder True to flip
+     * @return Updated builder
+     */
+    @Override
+    public Builder setFlipLeftEncoder(boolean flipLeftEncoder) {
+      super.setFlipLeftEncoder(flipLeftEncoder);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setRightEncoder
+     * @param rightEncoder DCMotor reference to the encoder
+     * @return Updated builder
+     */
+    @Override
+    public Builder setRightEncoder(DcMotor rightEncoder) {
+      super.setRightEncoder(rightEncoder);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setFlipRightEncoder
+     * @param flipRightEncoder True to flip
+     * @return Updated builder
+     */
+    @Override
+    public Builder setFlipRightEncoder(boolean flipRightEncoder) {
+      super.setFlipRightEncoder(flipRightEncoder);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setMiddleEncoder
+     * @param middleEncoder DCMotor reference to the encoder
+     * @return Updated builder
+     */
+    @Override
+    public Builder setMiddleEncoder(DcMotor middleEncoder) {
+      super.setMiddleEncoder(middleEncoder);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setFlipMiddleEncoder
+     * @param flipMiddleEncoder True to flip
+     * @return Updated builder
+     */
+    @Override
+    public Builder setFlipMiddleEncoder(boolean flipMiddleEncoder) {
+      super.setFlipMiddleEncoder(flipMiddleEncoder);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setSideEncoderDistance
+     * @param sideEncoderDistance Unit of measurement
+     * @return Updated builder
+     */
+    @Override
+    public Builder setSideEncoderDistance(double sideEncoderDistance) {
+      super.setSideEncoderDistance(sideEncoderDistance);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setMiddleEncoderOffset
+     * @param middleEncoderOffset Unit of measurement
+     * @return Updated builder
+     */
+    @Override
+    public Builder setMiddleEncoderOffset(double middleEncoderOffset) {
+      super.setMiddleEncoderOffset(middleEncoderOffset);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setEncoderWheelRadius
+     * @param encoderWheelRadius Unit of measurement
+     * @return Updated builder
+     */
+    @Override
+    public Builder setEncoderWheelRadius(double encoderWheelRadius) {
+      super.setEncoderWheelRadius(encoderWheelRadius);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setEncoderTicksPerRotation
+     * @param encoderTicksPerRotation Number of counts
+     * @return Updated builder
+     */
+    @Override
+    public Builder setEncoderTicksPerRotation(double encoderTicksPerRotation) {
+      super.setEncoderTicksPerRotation(encoderTicksPerRotation);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setBulkReadModules
+     * @param bulkReadModules Hubs the encoders are plugged into
+     * @return Updated builder
+     */
+    @Override
+    public Builder setBulkReadModules(List<LynxModule> bulkReadModules) {
+      super.setBulkReadModules(bulkReadModules);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setVelocityTimeConstant
+     * @param velocityTimeConstant Seconds
+     * @return Updated builder
+     */
+    @Override
+    public Builder setVelocityTimeConstant(double velocityTimeConstant) {
+      super.setVelocityTimeConstant(velocityTimeConstant);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setVelocityMinimumInterval
+     * @param velocityMinimumInterval Seconds
+     * @return Updated builder
+     */
+    @Override
+    public Builder setVelocityMinimumInterval(double velocityMinimumInterval) {
+      super.setVelocityMinimumInterval(velocityMinimumInterval);
+      return this;
+    }
+
+    /**
+     * See ThreeWheeled.Builder.setClock
+     * @param clock Time source in nanoseconds
+     * @return Updated builder
+     */
+    @Override
+    public Builder setClock(Clock clock) {
+      super.setClock(clock);
+      return this;
+    }
+
+    /**
+     * This will construct and return a new Odometer
+     * @return ThreeWheeledIMU Odometer
+     */
+    @Override
+    public ThreeWheeledIMU build() {
+      return new ThreeWheeledIMU(this);
+    }
+  }
+
+}
@@ -0,0 +1,423 @@
+package dev.narlyx.tweetybird.Odometers;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+
+import java.util.List;
+
+import dev.narlyx.tweetybird.Clock;
+import dev.narlyx.tweetybird.Pose;
+import dev.narlyx.tweetybird.TweetyBird;
+
+/**
+ * This is an example odometer for a two wheel setup, one encoder parallel to the robot's
+ * forward direction and one perpendicular to it, with the heading taken from an IMU. The IMU
+ * is the slowest device on the bus, so it is read at a limited rate and the heading is carried
+ * forward at the last measured turn rate in between.
+ */
+public class TwoWheeled implements TweetyBird.VelocityOdometer {
+
+  // Imported variables from builder
+  private final DcMotor parallelEncoder, perpendicularEncoder;
+  private final boolean flipParallelEncoder, flipPerpendicularEncoder;
+  private final IMU imu;
+  private final long imuIntervalNanos;
+  private final BulkReadCache bulkReadCache;
+  private final TwoWheeledKinematics kinematics;
+  private final VelocityEstimator velocityEstimator;
+  private final Clock clock;
+
+  /**
+   * Constructor used to setup all variables from builder.
+   * @param builder Passed builder
+   */
+  public TwoWheeled(TwoWheeled.Builder builder) {
+    this.parallelEncoder = builder.parallelEncoder;
+    this.perpendicularEncoder = builder.perpendicularEncoder;
+    this.flipParallelEncoder = builder.flipParallelEncoder;
+    this.flipPerpendicularEncoder = builder.flipPerpendicularEncoder;
+    this.imu = builder.imu;
+    this.imuIntervalNanos = (long) (builder.imuInterval*1e9);
+    double encoderWheelRadius = builder.encoderWheelRadius;
+    double encoderTicksPerRotation = builder.encoderTicksPerRotation;
+
+    double inchesPerTick = 2.0*Math.PI*(encoderWheelRadius / encoderTicksPerRotation);
+    kinematics = new TwoWheeledKinematics(builder.parallelEncoderOffset,
+        builder.perpendicularEncoderOffset, inchesPerTick);
+    velocityEstimator = new VelocityEstimator(builder.velocityTimeConstant,
+        builder.velocityMinimumInterval);
+    clock = builder.clock;
+
+    bulkReadCache = new BulkReadCache(builder.bulkReadModules);
+  }
+
+  // Cache
+  private double X = 0;
+  private double Y = 0;
+  private double Z = 0;
+
+  private double xOffset = 0;
+  private double yOffset = 0;
+  private double zOffset = 0;
+
+  // IMU cache, the heading is continuous and counts up turning right
+  private boolean imuStarted = false;
+  private long lastImuRead = 0;
+  private double lastImuYaw = 0;
+  private double imuHeading = 0;
+  private double imuRate = 0;
+
+  /**
+   * Clears the bulk read cache of every hub so the encoder reads of this tick fetch fresh
+   * values in a single transaction per hub. This is called by TweetyBird once per tick.
+   */
+  @Override
+  public void onTickStart() {
+    bulkReadCache.onTickStart();
+  }
+
+  /**
+   * Lets reads outside of TweetyBird's ticks clear the bulk read cache again. This is called
+   * by TweetyBird once per tick.
+   */
+  @Override
+  public void onTickEnd() {
+    bulkReadCache.onTickEnd();
+  }
+
+  /**
+   * Returns the heading at the passed time, the IMU is only read once the configured interval
+   * has passed since the last read, otherwise the last reading is moved on at the last rate.
+   * The heading counts from the first IMU reading so a new odometer starts at zero.
+   * @param timestamp Time in nanoseconds from the configured clock
+   * @return Heading in radians
+   */
+  private double getHeading(long timestamp) {
+    long sinceRead = timestamp-lastImuRead;
+    if (!imuStarted || sinceRead >= imuIntervalNanos) {
+      // The IMU counts up turning left and wraps around, TweetyBird counts up turning right
+      double measured = -imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.RADIANS);
+      if (!imuStarted) { // The first reading becomes zero like the other odometers
+        imuStarted = true;
+        imuHeading = 0;
+      } else {
+        double change = measured-lastImuYaw;
+        change = Math.atan2(Math.sin(change), Math.cos(change));
+        imuHeading += change;
+        imuRate = sinceRead > 0 ? change/(sinceRead/1e9) : 0;
+      }
+      lastImuYaw = measured;
+      lastImuRead = timestamp;
+      return imuHeading;
+    }
+    return imuHeading+imuRate*(sinceRead/1e9);
+  }
+
+  /**
+   * An internal method used to update all cached values before returning anything.
+   */
+  private void update() {
+    bulkReadCache.beforeRead();
+
+    int rawParallelPos = parallelEncoder.getCurrentPosition()*(flipParallelEncoder?-1:1);
+    int rawPerpendicularPos = perpendicularEncoder.getCurrentPosition()*(flipPerpendicularEncoder?-1:1);
+    long timestamp = clock.nanoTime();
+
+    kinematics.update(rawParallelPos, rawPerpendicularPos, getHeading(timestamp));
+    X = kinematics.getX();
+    Y = kinematics.getY();
+    Z = kinematics.getZ();
+    velocityEstimator.update(timestamp, X, Y, Z);
+  }
+
+  /**
+   * Returns estimated X (lateral) coordinate.
+   * @return Unit of measurement
+   */
+  @Override
+  public double getX() {
+    update();
+    return X-xOffset;
+  }
+
+  /**
+   * Returns estimated Y (axial) coordinate.
+   * @return Unit of measurement
+   */
+  @Override
+  public double getY() {
+    update();
+    return Y-yOffset;
+  }
+
+  /**
+   * Returns estimated Z (yaw) coordinate.
+   * @return Unit of measurement
+   */
+  @Override
+  public double getZ() {
+    update();
+    return Z-zOffset;
+  }
+
+  /**
+   * Fills the passed pose with the estimated X, Y, and Z coordinates from a single update.
+   * @param pose Pose to be filled
+   */
+  @Override
+  public void getPose(Pose pose) {
+    update();
+    pose.set(X-xOffset, Y-yOffset, Z-zOffset);
+  }
+
+  /**
+   * Fills the passed pose with the field relative velocity from the latest samples, the
+   * encoders are not read again.
+   * @param velocity Pose to be filled
+   */
+  @Override
+  public void getVelocity(Pose velocity) {
+    velocity.set(velocityEstimator.getVelocityX(), velocityEstimator.getVelocityY(),
+        velocityEstimator.getVelocityZ());
+  }
+
+  /**
+   * Fills the passed pose with the robot relative velocity from the latest samples, the
+   * encoders are not read again.
+   * @param velocity Pose to be filled
+   */
+  @Override
+  public void getRobotVelocity(Pose velocity) {
+    velocity.set(velocityEstimator.getLateralVelocity(), velocityEstimator.getAxialVelocity(),
+        velocityEstimator.getVelocityZ());
+  }
+
+  /**
+   * Returns when the newest sample used by the velocity estimate was taken.
+   * @return Nanoseconds from the configured clock
+   */
+  @Override
+  public long getTimestamp() {
+    return velocityEstimator.getTimestamp();
+  }
+
+  /**
+   * Will reset the estimated position based on imputed values.
+   * @param x Lateral unit of measurement
+   * @param y Axial unit of measurement
+   * @param z Yaw unit of measurement
+   */
+  @Override
+  public void resetTo(double x, double y, double z) {
+    update();
+    xOffset = X-x;
+    yOffset = Y-y;
+    zOffset = Z-z;
+  }
+
+  /**
+   * Used to configure and start the odometer.
+   */
+  public static class Builder {
+    private DcMotor parallelEncoder = null;
+    /**
+     * REQUIRED
+     * Defines the encoder that rolls when the bot moves forwards.
+     * @param parallelEncoder DCMotor reference to the encoder
+     * @return Updated builder
+     */
+    public Builder setParallelEncoder(DcMotor parallelEncoder) {
+      this.parallelEncoder = parallelEncoder;
+      return this;
+    }
+
+    private boolean flipParallelEncoder = false;
+    /**
+     * OPTIONAL
+     * Reverses the direction of the parallel encoder if counting backwards,
+     * this encoder must be counting up when the bot is pushed forwards.
+     * @param flipParallelEncoder True to flip
+     * @return Updated builder
+     */
+    public Builder setFlipParallelEncoder(boolean flipParallelEncoder) {
+      this.flipParallelEncoder = flipParallelEncoder;
+      return this;
+    }
+
+    private DcMotor perpendicularEncoder = null;
+    /**
+     * REQUIRED
+     * Defines the encoder that rolls when the bot moves sideways.
+     * @param perpendicularEncoder DCMotor reference to the encoder
+     * @return Updated builder
+     */
+    public Builder setPerpendicularEncoder(DcMotor perpendicularEncoder) {
+      this.perpendicularEncoder = perpendicularEncoder;
+      return this;
+    }
+
+    private boolean flipPerpendicularEncoder = false;
+    /**
+     * OPTIONAL
+     * Reverses the direction of the perpendicular encoder if counting backwards,
+     * this encoder must be counting up when the bot is pushed to the right.
+     * @param flipPerpendicularEncoder True to flip
+     * @return Updated builder
+     */
+    public Builder setFlipPerpendicularEncoder(boolean flipPerpendicularEncoder) {
+      this.flipPerpendicularEncoder = flipPerpendicularEncoder;
+      return this;
+    }
+
+    private IMU imu = null;
+    /**
+     * REQUIRED
+     * Defines the IMU the heading is read from, it must already be initialized with the hub's
+     * orientation. The heading starts at zero whatever the IMU's yaw is, later turns are measured
+     * from the first reading.
+     * @param imu IMU reference
+     * @return Updated builder
+     */
+    public Builder setIMU(IMU imu) {
+      this.imu = imu;
+      return this;
+    }
+
+    private double parallelEncoderOffset = 0;
+    /**
+     * REQUIRED TO FUNCTION PROPERLY
+     * The sideways distance from the center of rotation to the parallel encoder,
+     * if the encoder is to the right of the center, then this value will be positive,
+     * if the encoder is to the left of the center, this value will be negative.
+     * @param parallelEncoderOffset Unit of measurement
+     * @return Updated builder
+     */
+    public Builder setParallelEncoderOffset(double parallelEncoderOffset) {
+      this.parallelEncoderOffset = parallelEncoderOffset;
+      return this;
+    }
+
+    private double perpendicularEncoderOffset = 0;
+    /**
+     * REQUIRED TO FUNCTION PROPERLY
+     * The forwards distance from the center of rotation to the perpendicular encoder,
+     * if the encoder is to the front of the bot, then this value will be positive,
+     * if the encoder is to the back of the bot, this value will be negative.
+     * @param perpendicularEncoderOffset Unit of measurement
+     * @return Updated builder
+     */
+    public Builder setPerpendicularEncoderOffset(double perpendicularEncoderOffset) {
+      this.perpendicularEncoderOffset = perpendicularEncoderOffset;
+      return this;
+    }
+
+    private double encoderWheelRadius = 0;
+    /**
+     * REQUIRED TO FUNCTION PROPERLY
+     * The radius of the wheel attached to your encoder.
+     * @param encoderWheelRadius Unit of measurement
+     * @return Updated builder
+     */
+    public Builder setEncoderWheelRadius(double encoderWheelRadius) {
+      this.encoderWheelRadius = encoderWheelRadius;
+      return this;
+    }
+
+    private double encoderTicksPerRotation = 0;
+    /**
+     * REQUIRED TO FUNCTION PROPERLY
+     * How many times your encoder will count during one full rotation (360 degrees),
+     * you can typically find this information on the manufacturers website.
+     * @param encoderTicksPerRotation Number of counts
+     * @return Updated builder
+     */
+    public Builder setEncoderTicksPerRotation(double encoderTicksPerRotation) {
+      this.encoderTicksPerRotation = encoderTicksPerRotation;
+      return this;
+    }
+
+    private double imuInterval = 0.02;
+    /**
+     * OPTIONAL
+     * The shortest time between IMU reads, no matter how often the position is read,
+     * in between the heading is moved on at the last measured turn rate, zero reads the IMU
+     * on every update,
+     * the default value is 0.02 seconds.
+     * @param imuInterval Seconds
+     * @return Updated builder
+     */
+    public Builder setIMUInterval(double imuInterval) {
+      this.imuInterval = imuInterval;
+      return this;
+    }
+
+    private List<LynxModule> bulkReadModules = null;
+    /**
+     * OPTIONAL
+     * Passing your hubs here (hardwareMap.getAll(LynxModule.class)) will switch them to manual
+     * bulk caching so both encoders are read in a single transaction per hub each tick,
+     * TweetyBird will clear the cache once at the start of every tick. If your own code also
+     * reads from these hubs it will see the cached values until the next tick.
+     * Without this each encoder is read on its own.
+     * @param bulkReadModules Hubs the encoders are plugged into
+     * @return Updated builder
+     */
+    public Builder setBulkReadModules(List<LynxModule> bulkReadModules) {
+      this.bulkReadModules = bulkReadModules;
+      return this;
+    }
+
+    private double velocityTimeConstant = 0.05;
+    /**
+     * OPTIONAL
+     * How strongly the velocity estimate is smoothed, after this many seconds the estimate has
+     * covered about 63% of a sudden change, zero turns smoothing off,
+     * the default value is 0.05 seconds.
+     * @param velocityTimeConstant Seconds
+     * @return Updated builder
+     */
+    public Builder setVelocityTimeConstant(double velocityTimeConstant) {
+      this.velocityTimeConstant = velocityTimeConstant;
+      return this;
+    }
+
+    private double velocityMinimumInterval = 0.002;
+    /**
+     * OPTIONAL
+     * Reads closer together than this are not used for the velocity estimate, this stops the
+     * repeated reads of a cached bulk read from looking like the robot stopped,
+     * the default value is 0.002 seconds.
+     * @param velocityMinimumInterval Seconds
+     * @return Updated builder
+     */
+    public Builder setVelocityMinimumInterval(double velocityMinimumInterval) {
+      this.velocityMinimumInterval = velocityMinimumInterval;
+      return this;
+    }
+
+    private Clock clock = System::nanoTime;
+    /**
+     * OPTIONAL
+     * The monotonic clock used to timestamp encoder and IMU reads,
+     * the default value is System.nanoTime().
+     * @param clock Time source in nanoseconds
+     * @return Updated builder
+     */
+    public Builder setClock(Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    /**
+     * This will construct and return a new Odometer
+     * @return TwoWheeled Odometer
+     */
+    public TwoWheeled build() {
+      return new TwoWheeled(this);
+    }
+  }
+
+}
@@ -1,6 +1,6 @@
 package dev.narlyx.tweetybird;
 
-import com.qualcomm.robotcore.util.Range;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is the runtime for TweetyBird and currently handles all calculations and steps.
@@ -9,17 +9,59 @@ public class Runtime extends Thread {
 
   // References
   private final TweetyBird tweetyBird;
+  protected final LoopScheduler scheduler;
+  protected final PathFollower follower;
+  private final Controller controller;
+  protected final LatencyHistogram[] latency;
+  private final TweetyBird.VelocityOdometer velocityOdometer;
+  private final boolean latencyCompensation;
+  protected final Localizer localizer;
 
   // Cache
-  protected boolean busy = false;
+  private final Pose robotPose = new Pose();
+  private final Pose predictedPose = new Pose();
+  private final Pose velocity = new Pose();
+  protected volatile double senseToActLatency = 0;
+  private boolean senseToActMeasured = false;
+  protected volatile boolean busy = false;
+  private final Object idleMonitor = new Object();
   protected boolean engaged = false;
+  private boolean stepped = false;
 
   /**
    * Constructor
    * @param tweetyBird Pull configuration and variables
    */
   public Runtime(TweetyBird tweetyBird) {
+    super("TweetyBird runtime");
     this.tweetyBird = tweetyBird;
+    this.scheduler = new LoopScheduler(tweetyBird.targetFrequency, tweetyBird.clock);
+    this.follower = new PathFollower(tweetyBird.distanceBuffer, tweetyBird.rotationBuffer,
+        tweetyBird.speedModifier, tweetyBird.minSpeed, tweetyBird.maxSpeed,
+        tweetyBird.motionProfile);
+    this.controller = tweetyBird.controller;
+    if (tweetyBird.followerMode == TweetyBird.FollowerMode.PURE_PURSUIT) {
+      follower.setPurePursuit(tweetyBird.minLookahead, tweetyBird.maxLookahead);
+    }
+    if (tweetyBird.latencyTrackingEnabled) {
+      latency = new LatencyHistogram[TweetyBird.TickPhase.values().length];
+      for (int i = 0; i < latency.length; i++) {
+        latency[i] = new LatencyHistogram();
+      }
+    } else {
+      latency = null;
+    }
+    if (tweetyBird.odometer instanceof TweetyBird.VelocityOdometer) {
+      velocityOdometer = (TweetyBird.VelocityOdometer) tweetyBird.odometer;
+    } else {
+      velocityOdometer = null;
+    }
+    latencyCompensation = tweetyBird.latencyCompensationEnabled && velocityOdometer != null;
+    if (tweetyBird.latencyCompensationEnabled && !latencyCompensation) {
+      tweetyBird.log(TweetyBird.LogLevel.WARN,
+          "Latency compensation disabled: odometer does not provide velocity");
+    }
+    localizer = tweetyBird.pipelineEnabled ? new Localizer(tweetyBird, velocityOdometer) : null;
     tweetyBird.log("Runtime setup");
   }
 
@@ -33,13 +75,17 @@ public class Runtime extends Thread {
       tweetyBird.log("Runtime thread waiting for OpMode start...");
       tweetyBird.opMode.waitForStart();
       tweetyBird.log("Runtime thread starting FTC loop\n");
+      scheduler.start();
       while (tweetyBird.opMode.opModeIsActive()&&!Thread.currentThread().isInterrupted()) {
-        loop();
+        loop(scheduler.getDeltaTime());
+        scheduler.awaitNextTick();
       }
     } else { // Test environment
       tweetyBird.log("Runtime thread starting headless loop\n");
+      scheduler.start();
       while (!Thread.currentThread().isInterrupted()) {
-        loop();
+        loop(scheduler.getDeltaTime());
+        scheduler.awaitNextTick();
       }
       tweetyBird.close();
     }
@@ -47,189 +93,288 @@ public class Runtime extends Thread {
   }
 
   /**
-   * Loop that is executed in the thread
+   * Runs a single tick on the calling thread instead of the runtime thread, the time between
+   * ticks is measured with the configured clock. In pipelined mode a localization tick runs
+   * first.
    */
-  private void loop() {
-    // Fetching robot position
-    double robotX = tweetyBird.odometer.getX();
-    double robotY = tweetyBird.odometer.getY();
-    double robotZ = tweetyBird.odometer.getZ();
-    tweetyBird.log("Robot position X:"+robotX+" Y:"+robotY+" Z:"+robotZ);
-
-    // Fetching target waypoint
-    double targetX = tweetyBird.waypointQueue.getCurrentWaypoint().getX();
-    double targetY = tweetyBird.waypointQueue.getCurrentWaypoint().getY();
-    double targetZ = tweetyBird.waypointQueue.getCurrentWaypoint().getZ();
-    tweetyBird.log("Robot target position X:"+targetX+" Y:"+targetY+" Z:"+targetZ);
-
-    // Distances
-    double distanceToTarget = distanceForm(targetX,targetY,robotX,robotY);
-
-    tweetyBird.log("Distance to target: "+distanceToTarget);
-
-    double rotationDistanceToTarget = Math.abs(targetZ-robotZ);
-
-    tweetyBird.log("Rotation distance to target: "+rotationDistanceToTarget);
-
-    double distanceToEnd = distanceToTarget;
-    for (int i = tweetyBird.waypointQueue.getIndex()+1; i<tweetyBird.waypointQueue.getSize(); i++) {
-      if (tweetyBird.opMode != null) {
-        if (!tweetyBird.opMode.opModeIsActive()) {
-          break;
-        }
-      }
-
-      distanceToEnd += distanceForm(
-          tweetyBird.waypointQueue.getWaypoint(i).getX(),
-          tweetyBird.waypointQueue.getWaypoint(i).getY(),
-          tweetyBird.waypointQueue.getWaypoint(i-1).getX(),
-          tweetyBird.waypointQueue.getWaypoint(i-1).getY());
+  protected void step() {
+    if (localizer != null) {
+      localizer.step();
+    }
+    if (!stepped) {
+      stepped = true;
+      scheduler.start();
+    } else {
+      scheduler.recordTick();
     }
+    loop(scheduler.getDeltaTime());
+  }
 
-    tweetyBird.log("Distance to end: "+distanceToEnd);
+  /**
+   * Loop that is executed in the thread, split into a sense, plan, act, and log phase that are
+   * each timed when latency tracking is enabled
+   * @param dt Seconds since the previous tick started, zero on the first tick
+   */
+  private void loop(double dt) {
+    // Waiting for the localization stage to publish its first pose
+    if (localizer != null && localizer.poseBuffer.getPublishCount() == 0) {
+      return;
+    }
+    long tickTime = tweetyBird.clock.nanoTime();
+    long tickStart = latency != null ? System.nanoTime() : 0;
+
+    // Sense, fetching robot position from the odometer or the localization stage
+    long poseTime = tickTime;
+    if (localizer != null) {
+      poseTime = localizer.poseBuffer.read(robotPose);
+      if (latency != null) {
+        latency[TweetyBird.TickPhase.POSE_AGE.ordinal()].record(tickTime-poseTime);
+      }
+    } else {
+      tweetyBird.odometer.onTickStart();
+      try {
+        tweetyBird.odometer.getPose(robotPose);
+      } finally {
+        tweetyBird.odometer.onTickEnd();
+      }
+    }
+    Pose measuredVelocity = null;
+    if (velocityOdometer != null) {
+      readVelocity();
+      measuredVelocity = velocity;
+    }
+    Pose plannedPose = robotPose;
+    if (latencyCompensation) {
+      predictPose();
+      plannedPose = predictedPose;
+    }
+    long senseEnd = mark(TweetyBird.TickPhase.SENSE, tickStart);
+
+    // Plan, everything this tick reads from the same snapshot
+    WaypointPath path = tweetyBird.waypointQueue.getSnapshot();
+    int index = path.getIndex();
+    int lastIndex = path.getSize()-1;
+    follower.update(plannedPose, path);
+    controller.update(follower, plannedPose, measuredVelocity, dt);
+    double speed = controller.getSpeed();
+    boolean onTarget = follower.isOnTarget();
+    boolean onRotation = follower.isOnRotation();
+    boolean incremented = follower.isWaypointPassed();
+    double axial = onTarget ? 0 : controller.getAxial();
+    double lateral = onTarget ? 0 : controller.getLateral();
+    double yaw = onRotation ? 0 : controller.getYaw();
+    long planEnd = mark(TweetyBird.TickPhase.PLAN, senseEnd);
+
+    // Act
+    if (incremented) { // Moving onto the next waypoint
+      if (tweetyBird.waypointQueue.increment(path)) {
+        path.complete(index);
+      }
+    } else if (onTarget && onRotation) { // Stopping
+      if (engaged) {
+        tweetyBird.driver.stopAndHold();
+      }
+      controller.reset();
+      path.complete(index);
+      tweetyBird.waypointQueue.clearToCurrentIndex(path, plannedPose);
+      if (busy) {
+        busy = false;
+        signalIdle();
+      }
+    } else { // Sending movement
+      busy = true;
+      if (engaged) {
+        tweetyBird.driver.setHeading(axial, lateral, yaw, speed);
+        recordSenseToAct(poseTime);
+      }
+    }
+    long actEnd = mark(TweetyBird.TickPhase.ACT, planEnd);
 
-    double distanceFromLast = 0;
-    double distanceBetweenWaypoints = 0;
-    if (tweetyBird.waypointQueue.getIndex()>0) {
-      distanceFromLast = distanceForm(robotX, robotY,
-          tweetyBird.waypointQueue.getWaypoint(tweetyBird.waypointQueue.getIndex()-1).getX(),
-          tweetyBird.waypointQueue.getWaypoint(tweetyBird.waypointQueue.getIndex()-1).getY());
-      distanceBetweenWaypoints = distanceForm(tweetyBird.waypointQueue.getCurrentWaypoint().getX(),
-          tweetyBird.waypointQueue.getCurrentWaypoint().getY(),
-          tweetyBird.waypointQueue.getWaypoint(tweetyBird.waypointQueue.getIndex()-1).getX(),
-          tweetyBird.waypointQueue.getWaypoint(tweetyBird.waypointQueue.getIndex()-1).getY());
+    // Log
+    if (tweetyBird.isLoggable(TweetyBird.LogLevel.TRACE)) {
+      logTick(dt, path, index, onTarget, onRotation, incremented, engaged, axial, lateral, yaw, speed);
     }
+    boolean moving = engaged && !incremented && !(onTarget && onRotation);
+    report(tickTime, index, lastIndex+1, follower.getDistanceToTarget(), follower.getDistanceToEnd(),
+        follower.getDistanceFromStart(), speed, moving ? axial : 0, moving ? lateral : 0,
+        moving ? yaw : 0, onTarget, onRotation, incremented);
+    long logEnd = mark(TweetyBird.TickPhase.LOG, actEnd);
+    mark(TweetyBird.TickPhase.TICK, tickStart, logEnd);
+  }
 
-    tweetyBird.log("Distance from last: "+distanceFromLast);
-    tweetyBird.log("Distance between waypoints: "+distanceBetweenWaypoints);
+  /**
+   * Reads the robot's velocity from the odometer or the localization stage
+   */
+  private void readVelocity() {
+    if (localizer != null) {
+      localizer.velocityBuffer.read(velocity);
+    } else {
+      velocityOdometer.getVelocity(velocity);
+    }
+  }
 
-    double distanceFromStart = distanceFromLast;
-    for (int i = 1; i< tweetyBird.waypointQueue.getIndex(); i++) {
-      if (tweetyBird.opMode != null) {
-        if (!tweetyBird.opMode.opModeIsActive()) {
-          break;
-        }
+  /**
+   * Blocks until TweetyBird is no longer busy or the timeout passes, waiters are woken when the
+   * runtime stops moving or the queue empties instead of polling
+   * @param timeoutNanos Longest time to wait in nanoseconds
+   * @return Whether TweetyBird is idle
+   * @throws InterruptedException If the waiting thread is interrupted
+   */
+  protected boolean awaitIdle(long timeoutNanos) throws InterruptedException {
+    synchronized (idleMonitor) {
+      if (!tweetyBird.isBusy()) {
+        return true;
       }
-
-      distanceFromStart += distanceForm(
-          tweetyBird.waypointQueue.getWaypoint(i).getX(),
-          tweetyBird.waypointQueue.getWaypoint(i).getY(),
-          tweetyBird.waypointQueue.getWaypoint(i - 1).getX(),
-          tweetyBird.waypointQueue.getWaypoint(i - 1).getY()
-      );
+      TimeUnit.NANOSECONDS.timedWait(idleMonitor, timeoutNanos);
+      return !tweetyBird.isBusy();
     }
+  }
 
-    tweetyBird.log("Distance from start: "+distanceFromStart);
+  /**
+   * Wakes every thread waiting in awaitIdle, called when the runtime stops moving or the queue
+   * is emptied
+   */
+  protected void signalIdle() {
+    synchronized (idleMonitor) {
+      idleMonitor.notifyAll();
+    }
+  }
 
-    // Speed
-    double deccel = Range.clip(distanceToEnd*tweetyBird.speedModifier,tweetyBird.minSpeed,tweetyBird.maxSpeed);
-    double accel = Range.clip(deccel-(distanceFromStart*tweetyBird.speedModifier)-0.1,0,deccel-tweetyBird.minSpeed);
-    double speed = deccel-accel;
+  /**
+   * Moves the measured pose forward by the robot's velocity over the time until the command
+   * sent this tick takes effect
+   */
+  private void predictPose() {
+    double horizon = senseToActLatency+tweetyBird.actuationLatency;
+    predictedPose.set(robotPose.getX()+velocity.getX()*horizon,
+        robotPose.getY()+velocity.getY()*horizon,
+        robotPose.getZ()+velocity.getZ()*horizon);
+  }
 
-    // Checks
-    double speedBuffer = ((1-(tweetyBird.minSpeed*2))+(speed*2));
-    boolean onTarget = distanceToTarget <= tweetyBird.distanceBuffer * speedBuffer;
-    boolean onRotation = rotationDistanceToTarget <= tweetyBird.rotationBuffer * Math.toRadians(speedBuffer);
-    tweetyBird.log("On target: "+onTarget);
-    tweetyBird.log("On rotation: "+onRotation);
+  /**
+   * Measures the time from the odometer read to the driver command and adds it to the
+   * smoothed latency used for prediction, in pipelined mode this includes the pose's age
+   * @param senseTime Configured clock time before the odometer was read
+   */
+  private void recordSenseToAct(long senseTime) {
+    long elapsed = tweetyBird.clock.nanoTime()-senseTime;
+    double seconds = elapsed/1e9;
+    if (senseToActMeasured) {
+      senseToActLatency += (seconds-senseToActLatency)*0.1;
+    } else {
+      senseToActLatency = seconds;
+      senseToActMeasured = true;
+    }
+    if (latency != null) {
+      latency[TweetyBird.TickPhase.SENSE_TO_ACT.ordinal()].record(elapsed);
+    }
+  }
 
-    // Incrementing to the next waypoint if done
-    if (onTarget && onRotation && tweetyBird.waypointQueue.getSize()-1> tweetyBird.waypointQueue.getIndex()) {
-      tweetyBird.waypointQueue.increment();
-      tweetyBird.log("Moving onto next waypoint...\n");
+  /**
+   * Sends the trace messages for a tick
+   * @param dt Seconds since the previous tick started
+   * @param path Snapshot used this tick
+   * @param index Index of the targeted waypoint
+   * @param onTarget Whether the robot is on target
+   * @param onRotation Whether the robot is on rotation
+   * @param incremented Whether the queue moved onto the next waypoint
+   * @param engaged Whether the driver was used
+   * @param axial Axial sent to the driver
+   * @param lateral Lateral sent to the driver
+   * @param yaw Yaw sent to the driver
+   * @param speed Computed speed
+   */
+  private void logTick(double dt, WaypointPath path, int index, boolean onTarget,
+                       boolean onRotation, boolean incremented, boolean engaged,
+                       double axial, double lateral, double yaw, double speed) {
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Robot position X:{} Y:{} Z:{}", robotPose.getX(), robotPose.getY(), robotPose.getZ());
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Tick delta time: {}", dt);
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Robot target position X:{} Y:{} Z:{}", path.getX(index), path.getY(index), path.getZ(index));
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Distance to target: {}", follower.getDistanceToTarget());
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Rotation distance to target: {}", follower.getRotationDistanceToTarget());
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Distance to end: {}", follower.getDistanceToEnd());
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Distance from last: {}", follower.getDistanceFromLast());
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Distance between waypoints: {}", follower.getDistanceBetweenWaypoints());
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Distance from start: {}", follower.getDistanceFromStart());
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "On target: "+onTarget);
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "On rotation: "+onRotation);
+    if (incremented) {
+      tweetyBird.log(TweetyBird.LogLevel.TRACE, "Moving onto next waypoint...\n");
       return;
     }
-
-    // Target heading
-    double targetHeading = Math.atan2(targetX - robotX, targetY - robotY) - robotZ;
-
-    // Yaw
-    double targetYaw = targetZ;
-
-    // Advanced heading & yaw
-    if (tweetyBird.waypointQueue.getSize()>1 && tweetyBird.waypointQueue.getIndex()<0) {
-      Waypoint lastWaypoint =
-          tweetyBird.waypointQueue.getWaypoint(tweetyBird.waypointQueue.getIndex()-1);
-      double lastX = lastWaypoint.getX()+0.00000001;
-      double lastY = lastWaypoint.getY()+0.00000001;
-      double lastZ = lastWaypoint.getZ()+0.00000001;
-
-      double pathLine = ((targetY-lastY)-0.0000001)/(targetX-lastX);
-      double pathIntersect = targetY-(pathLine*targetX);
-
-      double robotLine = -((targetX-lastX)/((targetY-lastY)-0.0000001));
-      double robotIntersect = robotY-(robotLine*robotX);
-
-      double bisectionX = (pathIntersect/robotIntersect)/(robotIntersect/pathLine);
-      double bisectionY = robotLine*bisectionX+robotIntersect;
-
-      tweetyBird.log("Bisection X: "+bisectionX+" Y: "+bisectionY);
-
-      double distsanceOffPath = distanceForm(robotX,robotY,bisectionX,bisectionY);
-
-      tweetyBird.log("Distance off path: "+distsanceOffPath);
-
-      double correctionX = ((bisectionX-robotX)*tweetyBird.correctionOverpower)+(targetX-robotX);
-      double correctionY = ((bisectionY-robotY)*tweetyBird.correctionOverpower)+(targetY-robotY);
-
-      double correctionHeading = Math.atan2(correctionX,correctionY) - robotZ;
-
-      tweetyBird.log("Correction heading: "+correctionHeading);
-
-      double yawDistance = Math.abs(lastZ - targetZ);
-      double progress = distanceFromLast/distanceToTarget;
-      targetYaw = Range.clip(lastZ+(yawDistance*progress), lastZ, targetZ);
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Target Heading: {}", follower.getTargetHeading());
+    if (onTarget && onRotation) {
+      if (!engaged) {
+        tweetyBird.log(TweetyBird.LogLevel.TRACE, "Driver stop and hold not called: TweetyBird not engaged");
+      }
+    } else if (engaged) {
+      tweetyBird.log(TweetyBird.LogLevel.TRACE,
+          "Axial: "+axial+" Lateral: "+lateral+" Yaw: "+yaw+" Speed: "+speed);
+    } else {
+      tweetyBird.log(TweetyBird.LogLevel.TRACE, "Driver movement not called: TweetyBird not engaged");
     }
-    tweetyBird.log("Target Heading: "+targetHeading);
-
-    // Heading to X and Y
-    double axial = Math.cos(targetHeading);
-    double lateral = Math.sin(targetHeading);
-
-    // Yaw
-    double tempYawPower = Range.clip((targetYaw-robotZ)/(Math.PI/5),-1,1);
-    double multiplier = tempYawPower/Math.abs(tempYawPower);
-    tempYawPower = Range.clip(Math.abs(tempYawPower),tweetyBird.minSpeed,tweetyBird.maxSpeed);
-    double yaw = tempYawPower*multiplier;
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Loop complete\n");
+  }
 
-    // Output
-    if (onTarget && onRotation) { // Stopping
-      busy = false;
-      if (engaged) {
-        tweetyBird.driver.stopAndHold();
-      } else {
-        tweetyBird.log("Driver stop and hold not called: TweetyBird not engaged");
-      }
-      if (!tweetyBird.waypointQueue.getUpdated()) {
-        tweetyBird.waypointQueue.clearToCurrentIndex();
-      }
-    } else { // Sending movement
-      busy = true;
-      if (engaged) {
-        tweetyBird.log(
-                "Axial: " + (onTarget ? 0 : axial) +
-                " Lateral: " + (onTarget ? 0 : lateral) +
-                " Yaw: " + (onRotation ? 0 : yaw) +
-                " Speed: " + speed);
-        tweetyBird.driver.setHeading(onTarget ? 0 : axial, onTarget ? 0 : lateral, onRotation ? 0 : yaw, speed);
-      } else {
-        tweetyBird.log("Driver movement not called: TweetyBird not engaged");
-      }
+  /**
+   * Records the time since the start of a phase if latency tracking is enabled
+   * @param phase Phase that just ended
+   * @param start System.nanoTime() when the phase started
+   * @return System.nanoTime() now, used as the start of the next phase
+   */
+  private long mark(TweetyBird.TickPhase phase, long start) {
+    if (latency == null) {
+      return 0;
     }
+    long now = System.nanoTime();
+    latency[phase.ordinal()].record(now-start);
+    return now;
+  }
 
-    tweetyBird.log("Loop complete\n");
+  /**
+   * Records a known duration if latency tracking is enabled
+   * @param phase Phase that the duration belongs to
+   * @param start System.nanoTime() when the phase started
+   * @param end System.nanoTime() when the phase ended
+   */
+  private void mark(TweetyBird.TickPhase phase, long start, long end) {
+    if (latency != null) {
+      latency[phase.ordinal()].record(end-start);
+    }
   }
 
   /**
-   * Returns the distance between 2 points
-   * @param x1 Input x
-   * @param y1 Input y
-   * @param x2 Input x
-   * @param y2 Input y
-   * @return Distance
+   * Sends the values of a tick to the flight recorder and telemetry if they are enabled
+   * @param tickTime Tick start from the configured clock
+   * @param index Index of the targeted waypoint
+   * @param size Number of waypoints in the queue
+   * @param distanceToTarget Distance to the targeted waypoint
+   * @param distanceToEnd Distance left on the path
+   * @param distanceFromStart Distance traveled on the path
+   * @param speed Computed speed
+   * @param axial Axial sent to the driver
+   * @param lateral Lateral sent to the driver
+   * @param yaw Yaw sent to the driver
+   * @param onTarget Whether the robot is on target
+   * @param onRotation Whether the robot is on rotation
+   * @param incremented Whether the queue moved onto the next waypoint
    */
-  private double distanceForm(double x1, double y1, double x2, double y2) {
-    return Math.sqrt(Math.pow(x2-x1,2)+Math.pow(y2-y1,2));
+  private void report(long tickTime, int index, int size, double distanceToTarget,
+                      double distanceToEnd, double distanceFromStart, double speed,
+                      double axial, double lateral, double yaw,
+                      boolean onTarget, boolean onRotation, boolean incremented) {
+    if (tweetyBird.flightRecorder != null) {
+      int flags = (onTarget ? FlightRecorder.FLAG_ON_TARGET : 0)
+          | (onRotation ? FlightRecorder.FLAG_ON_ROTATION : 0)
+          | (engaged ? FlightRecorder.FLAG_ENGAGED : 0)
+          | (incremented ? FlightRecorder.FLAG_INCREMENTED : 0);
+      tweetyBird.flightRecorder.record(tickTime, robotPose, index, distanceToTarget, distanceToEnd,
+          distanceFromStart, speed, axial, lateral, yaw, flags);
+    }
+    if (tweetyBird.telemetryReporter != null) {
+      tweetyBird.telemetryReporter.update(tickTime, robotPose, index, size, distanceToTarget,
+          distanceToEnd, speed, axial, lateral, yaw, onTarget, onRotation, engaged);
+    }
   }
 
 }
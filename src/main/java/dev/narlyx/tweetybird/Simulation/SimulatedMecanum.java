@@ -0,0 +1,401 @@
+package dev.narlyx.tweetybird.Simulation;
+
+import java.util.Random;
+
+import dev.narlyx.tweetybird.Odometers.VelocityEstimator;
+import dev.narlyx.tweetybird.Pose;
+import dev.narlyx.tweetybird.TweetyBird;
+
+/**
+ * A simulated mecanum chassis that acts as both the driver and the odometer for TweetyBird.
+ * Motor powers follow the commanded power with a first order lag, the position is tracked by
+ * quantized wheel encoders, and every read can have noise added. All randomness comes from a
+ * seeded generator so a run can be repeated exactly.
+ */
+public class SimulatedMecanum implements TweetyBird.VelocityOdometer, TweetyBird.Driver {
+
+  // Imported variables from builder
+  private final double maxVelocity, maxAngularVelocity, motorTimeConstant;
+  private final double positionNoise, rotationNoise, distancePerTick;
+  private final Random random;
+
+  // Motor powers in the order front left, front right, back left, back right
+  private final double[] commandedPower = new double[4];
+  private final double[] actualPower = new double[4];
+
+  // Wheel travel, the exact distance and the last encoder reading used by the odometry
+  private final double[] wheelDistance = new double[4];
+  private final double[] lastWheelReading = new double[4];
+  private final double[] wheelDelta = new double[4];
+
+  // True position of the robot
+  private double trueX, trueY, trueZ;
+
+  // Position measured by the encoders
+  private double X, Y, Z;
+
+  // Velocity estimated from the measured position, timed by the simulated time
+  private final VelocityEstimator velocityEstimator;
+  private long elapsedNanos = 0;
+
+  /**
+   * Constructor used to setup all variables from builder.
+   * @param builder Passed builder
+   */
+  public SimulatedMecanum(SimulatedMecanum.Builder builder) {
+    this.maxVelocity = builder.maxVelocity;
+    this.maxAngularVelocity = builder.maxAngularVelocity;
+    this.motorTimeConstant = builder.motorTimeConstant;
+    this.positionNoise = builder.positionNoise;
+    this.rotationNoise = builder.rotationNoise;
+    this.distancePerTick = builder.distancePerTick;
+    this.random = new Random(builder.seed);
+    trueX = X = builder.startX;
+    trueY = Y = builder.startY;
+    trueZ = Z = builder.startZ;
+    velocityEstimator = new VelocityEstimator(builder.velocityTimeConstant, 0);
+    velocityEstimator.update(0, X, Y, Z);
+  }
+
+  /**
+   * Moves the simulation forward, the motor powers are eased towards the commanded powers and
+   * the robot is moved by the resulting wheel speeds
+   * @param dt Seconds to simulate
+   */
+  public synchronized void update(double dt) {
+    if (dt <= 0) {
+      return;
+    }
+
+    // Motor lag
+    double blend = motorTimeConstant > 0 ? 1-Math.exp(-dt/motorTimeConstant) : 1;
+    for (int i = 0; i < 4; i++) {
+      actualPower[i] += (commandedPower[i]-actualPower[i])*blend;
+      wheelDistance[i] += actualPower[i]*maxVelocity*dt;
+    }
+
+    // Moving the true position using the average heading over the step
+    double axial = (actualPower[0]+actualPower[1]+actualPower[2]+actualPower[3])/4*maxVelocity*dt;
+    double lateral = (actualPower[0]-actualPower[1]-actualPower[2]+actualPower[3])/4*maxVelocity*dt;
+    double yaw = (actualPower[0]-actualPower[1]+actualPower[2]-actualPower[3])/4*maxAngularVelocity*dt;
+    double heading = trueZ+yaw/2;
+    trueX += lateral*Math.cos(heading)+axial*Math.sin(heading);
+    trueY += axial*Math.cos(heading)-lateral*Math.sin(heading);
+    trueZ += yaw;
+
+    // Odometry from the quantized encoders
+    for (int i = 0; i < 4; i++) {
+      double reading = quantize(wheelDistance[i]);
+      wheelDelta[i] = reading-lastWheelReading[i];
+      lastWheelReading[i] = reading;
+    }
+    double measuredAxial = (wheelDelta[0]+wheelDelta[1]+wheelDelta[2]+wheelDelta[3])/4;
+    double measuredLateral = (wheelDelta[0]-wheelDelta[1]-wheelDelta[2]+wheelDelta[3])/4;
+    double measuredYaw = (wheelDelta[0]-wheelDelta[1]+wheelDelta[2]-wheelDelta[3])/4*(maxAngularVelocity/maxVelocity);
+    double measuredHeading = Z+measuredYaw/2;
+    X += measuredLateral*Math.cos(measuredHeading)+measuredAxial*Math.sin(measuredHeading);
+    Y += measuredAxial*Math.cos(measuredHeading)-measuredLateral*Math.sin(measuredHeading);
+    Z += measuredYaw;
+
+    elapsedNanos += Math.round(dt*1e9);
+    velocityEstimator.update(elapsedNanos, X, Y, Z);
+  }
+
+  /**
+   * Rounds a wheel distance down to a whole number of encoder ticks
+   * @param distance Exact distance
+   * @return Distance the encoder would report
+   */
+  private double quantize(double distance) {
+    if (distancePerTick <= 0) {
+      return distance;
+    }
+    return Math.floor(distance/distancePerTick)*distancePerTick;
+  }
+
+  /**
+   * Returns a random offset for a sensor read
+   * @param standardDeviation Size of the noise
+   * @return Offset
+   */
+  private double noise(double standardDeviation) {
+    return standardDeviation > 0 ? random.nextGaussian()*standardDeviation : 0;
+  }
+
+  /**
+   * This method will set the commanded power of all four motors the same way the Mecanum driver
+   * does, the actual powers follow with the configured lag
+   * @param axial Value from -1 to 1 to favor the axial direction
+   * @param lateral Value from -1 to 1 to favor the lateral direction
+   * @param yaw Value from -1 to 1 to set rotation
+   * @param speed Value from 0 to 1 to set how fast the bot will cary out axial and lateral
+   */
+  @Override
+  public synchronized void setHeading(double axial, double lateral, double yaw, double speed) {
+    commandedPower[0] = clip(((axial + lateral) * speed) + (yaw));
+    commandedPower[1] = clip(((axial - lateral) * speed) - (yaw));
+    commandedPower[2] = clip(((axial - lateral) * speed) + (yaw));
+    commandedPower[3] = clip(((axial + lateral) * speed) - (yaw));
+  }
+
+  /**
+   * This method will command all of the motors to stop
+   */
+  @Override
+  public synchronized void stopAndHold() {
+    for (int i = 0; i < 4; i++) {
+      commandedPower[i] = 0;
+    }
+  }
+
+  /**
+   * Limits a motor power to what a real motor accepts
+   * @param power Requested power
+   * @return Power from -1 to 1
+   */
+  private double clip(double power) {
+    return Math.max(-1, Math.min(1, power));
+  }
+
+  /**
+   * Fills the passed pose with the measured position, noise is added once per call
+   * @param pose Pose to be filled
+   */
+  @Override
+  public synchronized void getPose(Pose pose) {
+    pose.set(X+noise(positionNoise), Y+noise(positionNoise), Z+noise(rotationNoise));
+  }
+
+  /**
+   * Returns the measured X position with noise
+   * @return X
+   */
+  @Override
+  public synchronized double getX() {
+    return X+noise(positionNoise);
+  }
+
+  /**
+   * Returns the measured Y position with noise
+   * @return Y
+   */
+  @Override
+  public synchronized double getY() {
+    return Y+noise(positionNoise);
+  }
+
+  /**
+   * Returns the measured rotation with noise
+   * @return Z in radians
+   */
+  @Override
+  public synchronized double getZ() {
+    return Z+noise(rotationNoise);
+  }
+
+  /**
+   * Fills the passed pose with the field relative velocity estimated from the encoders
+   * @param velocity Pose to be filled
+   */
+  @Override
+  public synchronized void getVelocity(Pose velocity) {
+    velocity.set(velocityEstimator.getVelocityX(), velocityEstimator.getVelocityY(),
+        velocityEstimator.getVelocityZ());
+  }
+
+  /**
+   * Fills the passed pose with the robot relative velocity estimated from the encoders
+   * @param velocity Pose to be filled
+   */
+  @Override
+  public synchronized void getRobotVelocity(Pose velocity) {
+    velocity.set(velocityEstimator.getLateralVelocity(), velocityEstimator.getAxialVelocity(),
+        velocityEstimator.getVelocityZ());
+  }
+
+  /**
+   * Returns the simulated time of the newest encoder sample
+   * @return Nanoseconds since the simulation started
+   */
+  @Override
+  public synchronized long getTimestamp() {
+    return velocityEstimator.getTimestamp();
+  }
+
+  /**
+   * Resets the measured position like a real odometer would, the true position is not moved
+   * @param x New x
+   * @param y New y
+   * @param z New z
+   */
+  @Override
+  public synchronized void resetTo(double x, double y, double z) {
+    X = x;
+    Y = y;
+    Z = z;
+    velocityEstimator.reset();
+    velocityEstimator.update(elapsedNanos, X, Y, Z);
+  }
+
+  /**
+   * Returns the true X position without encoder error or noise
+   * @return X
+   */
+  public synchronized double getTrueX() {
+    return trueX;
+  }
+
+  /**
+   * Returns the true Y position without encoder error or noise
+   * @return Y
+   */
+  public synchronized double getTrueY() {
+    return trueY;
+  }
+
+  /**
+   * Returns the true rotation without encoder error or noise
+   * @return Z in radians
+   */
+  public synchronized double getTrueZ() {
+    return trueZ;
+  }
+
+  /**
+   * Used to configure the simulated chassis.
+   */
+  public static class Builder {
+
+    private double maxVelocity = 60;
+    /**
+     * OPTIONAL
+     * This value will define how fast the robot drives at full power,
+     * the default value is 60 units per second.
+     * @param maxVelocity Units per second
+     * @return Updated builder
+     */
+    public Builder setMaxVelocity(double maxVelocity) {
+      this.maxVelocity = maxVelocity;
+      return this;
+    }
+
+    private double maxAngularVelocity = 2*Math.PI;
+    /**
+     * OPTIONAL
+     * This value will define how fast the robot turns at full power,
+     * the default value is one rotation per second.
+     * @param maxAngularVelocity Radians per second
+     * @return Updated builder
+     */
+    public Builder setMaxAngularVelocity(double maxAngularVelocity) {
+      this.maxAngularVelocity = maxAngularVelocity;
+      return this;
+    }
+
+    private double motorTimeConstant = 0.05;
+    /**
+     * OPTIONAL
+     * This value will define how slowly the motors follow a new power, after one time constant
+     * a motor has covered about 63% of the change, zero removes the lag,
+     * the default value is 0.05 seconds.
+     * @param motorTimeConstant Seconds
+     * @return Updated builder
+     */
+    public Builder setMotorTimeConstant(double motorTimeConstant) {
+      this.motorTimeConstant = motorTimeConstant;
+      return this;
+    }
+
+    private double positionNoise = 0;
+    /**
+     * OPTIONAL
+     * This value will define the standard deviation of the noise added to every X and Y read,
+     * the default value is 0.
+     * @param positionNoise Units
+     * @return Updated builder
+     */
+    public Builder setPositionNoise(double positionNoise) {
+      this.positionNoise = positionNoise;
+      return this;
+    }
+
+    private double rotationNoise = 0;
+    /**
+     * OPTIONAL
+     * This value will define the standard deviation of the noise added to every Z read,
+     * the default value is 0.
+     * @param rotationNoise Radians
+     * @return Updated builder
+     */
+    public Builder setRotationNoise(double rotationNoise) {
+      this.rotationNoise = rotationNoise;
+      return this;
+    }
+
+    private double distancePerTick = 0;
+    /**
+     * OPTIONAL
+     * This value will define how far a wheel travels per encoder tick, wheel travel is rounded
+     * down to whole ticks before it reaches the odometry, zero disables the rounding,
+     * the default value is 0.
+     * @param distancePerTick Units per tick
+     * @return Updated builder
+     */
+    public Builder setDistancePerTick(double distancePerTick) {
+      this.distancePerTick = distancePerTick;
+      return this;
+    }
+
+    private double velocityTimeConstant = 0.05;
+    /**
+     * OPTIONAL
+     * This value will define how strongly the velocity estimate is smoothed,
+     * the default value is 0.05 seconds.
+     * @param velocityTimeConstant Seconds
+     * @return Updated builder
+     */
+    public Builder setVelocityTimeConstant(double velocityTimeConstant) {
+      this.velocityTimeConstant = velocityTimeConstant;
+      return this;
+    }
+
+    private long seed = 0;
+    /**
+     * OPTIONAL
+     * This value will seed the noise generator, runs with the same seed and configuration
+     * produce the same results,
+     * the default value is 0.
+     * @param seed Random seed
+     * @return Updated builder
+     */
+    public Builder setSeed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    private double startX = 0, startY = 0, startZ = 0;
+    /**
+     * OPTIONAL
+     * This will place the robot at a starting position,
+     * the default value is 0, 0, 0.
+     * @param x Starting x
+     * @param y Starting y
+     * @param z Starting z in radians
+     * @return Updated builder
+     */
+    public Builder setStartingPosition(double x, double y, double z) {
+      this.startX = x;
+      this.startY = y;
+      this.startZ = z;
+      return this;
+    }
+
+    /**
+     * This will construct and return a new simulated chassis
+     * @return SimulatedMecanum
+     */
+    public SimulatedMecanum build() {
+      return new SimulatedMecanum(this);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package dev.narlyx.tweetybird.Simulation;
+
+import dev.narlyx.tweetybird.TweetyBird;
+
+/**
+ * Runs TweetyBird against a simulated chassis on a virtual clock. Every step runs one runtime
+ * tick on the calling thread and then simulates the chassis until the next tick, so paths run
+ * as fast as the computer allows and give the same result every time.
+ */
+public class Simulator {
+
+  // References
+  private final TweetyBird tweetyBird;
+  private final SimulatedMecanum chassis;
+  private final VirtualClock clock = new VirtualClock();
+
+  // Configuration
+  private final double tickSeconds;
+
+  /**
+   * Constructor, the passed builder is given the chassis, the virtual clock, and manual
+   * stepping before TweetyBird is built from it
+   * @param chassis Simulated chassis used as both the odometer and the driver
+   * @param builder TweetyBird configuration
+   * @param frequency Simulated ticks per second
+   */
+  public Simulator(SimulatedMecanum chassis, TweetyBird.Builder builder, double frequency) {
+    this.chassis = chassis;
+    this.tickSeconds = 1/frequency;
+    this.tweetyBird = builder
+        .setOdometer(chassis)
+        .setDriver(chassis)
+        .setClock(clock)
+        .setTargetFrequency(frequency)
+        .setManualStepping(true)
+        .build();
+  }
+
+  /**
+   * Runs one runtime tick and simulates the chassis up to the next one
+   */
+  public void step() {
+    tweetyBird.step();
+    chassis.update(tickSeconds);
+    clock.advanceSeconds(tickSeconds);
+  }
+
+  /**
+   * Steps until TweetyBird is no longer busy or the time limit is reached
+   * @param timeoutSeconds Longest simulated time to run
+   * @return Whether TweetyBird finished the queue
+   */
+  public boolean runUntilIdle(double timeoutSeconds) {
+    double end = clock.getSeconds()+timeoutSeconds;
+    while (tweetyBird.isBusy()) {
+      if (clock.getSeconds() >= end) {
+        return false;
+      }
+      step();
+    }
+    return true;
+  }
+
+  /**
+   * Steps for a fixed amount of simulated time
+   * @param seconds Simulated time to run
+   */
+  public void run(double seconds) {
+    double end = clock.getSeconds()+seconds;
+    while (clock.getSeconds() < end) {
+      step();
+    }
+  }
+
+  /**
+   * Returns the simulated TweetyBird
+   * @return TweetyBird
+   */
+  public TweetyBird getTweetyBird() {
+    return tweetyBird;
+  }
+
+  /**
+   * Returns the simulated chassis
+   * @return Chassis
+   */
+  public SimulatedMecanum getChassis() {
+    return chassis;
+  }
+
+  /**
+   * Returns the virtual clock
+   * @return Clock
+   */
+  public VirtualClock getClock() {
+    return clock;
+  }
+}
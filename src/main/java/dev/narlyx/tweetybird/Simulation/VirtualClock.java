@@ -0,0 +1,45 @@
+package dev.narlyx.tweetybird.Simulation;
+
+import dev.narlyx.tweetybird.Clock;
+
+/**
+ * A clock that only moves when it is told to, used to run TweetyBird on simulated time.
+ */
+public class VirtualClock implements Clock {
+
+  // Cache
+  private volatile long nanos = 0;
+
+  /**
+   * Returns the current simulated time
+   * @return Nanoseconds since the clock was created
+   */
+  @Override
+  public long nanoTime() {
+    return nanos;
+  }
+
+  /**
+   * Moves the clock forward
+   * @param nanos Nanoseconds to move forward
+   */
+  public void advance(long nanos) {
+    this.nanos += nanos;
+  }
+
+  /**
+   * Moves the clock forward
+   * @param seconds Seconds to move forward
+   */
+  public void advanceSeconds(double seconds) {
+    advance(Math.round(seconds*1e9));
+  }
+
+  /**
+   * Returns the current simulated time
+   * @return Seconds since the clock was created
+   */
+  public double getSeconds() {
+    return nanos/1e9;
+  }
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains a headless simulation of a robot that can drive TweetyBird on simulated
+ * time, use it to test paths without hardware.
+ */
+package dev.narlyx.tweetybird.Simulation;
\ No newline at end of file
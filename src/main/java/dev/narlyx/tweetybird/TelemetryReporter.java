@@ -0,0 +1,107 @@
+package dev.narlyx.tweetybird;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * Shows TweetyBird's state on the driver station as a fixed set of telemetry items. The runtime
+ * hands over its values every tick, but the items are only formatted and sent once per interval.
+ */
+public class TelemetryReporter {
+
+  // References
+  private final Telemetry telemetry;
+  private final LoopScheduler scheduler;
+  private final long intervalNanos;
+
+  // Latest values
+  private double x, y, z;
+  private int waypointIndex, waypointCount;
+  private double distanceToTarget, distanceToEnd, speed;
+  private double axial, lateral, yaw;
+  private boolean onTarget, onRotation, engaged;
+
+  // Cache
+  private long lastUpdate = 0;
+  private boolean sent = false;
+
+  /**
+   * Constructor, this will add TweetyBird's items to the passed telemetry
+   * @param telemetry OpMode telemetry
+   * @param scheduler Runtime scheduler used for loop stats
+   * @param intervalMillis Minimum time between updates
+   * @param latency Tick phase histograms to show, null to leave them out
+   */
+  public TelemetryReporter(Telemetry telemetry, LoopScheduler scheduler, int intervalMillis,
+                           LatencyHistogram[] latency) {
+    this.telemetry = telemetry;
+    this.scheduler = scheduler;
+    this.intervalNanos = intervalMillis*1_000_000L;
+
+    // Items are formatted by telemetry only when an update is sent
+    telemetry.addData("TweetyBird pose", () ->
+        String.format("X %.2f  Y %.2f  Z %.1f deg", x, y, Math.toDegrees(z))).setRetained(true);
+    telemetry.addData("TweetyBird waypoint", () ->
+        String.format("%d of %d", waypointIndex, waypointCount-1)).setRetained(true);
+    telemetry.addData("TweetyBird distance", () ->
+        String.format("target %.2f  end %.2f", distanceToTarget, distanceToEnd)).setRetained(true);
+    telemetry.addData("TweetyBird output", () ->
+        String.format("axial %.2f  lateral %.2f  yaw %.2f  speed %.2f", axial, lateral, yaw, speed))
+        .setRetained(true);
+    telemetry.addData("TweetyBird state", () ->
+        (engaged ? "engaged" : "disengaged")+(onTarget ? "  on target" : "")
+            +(onRotation ? "  on rotation" : "")).setRetained(true);
+    telemetry.addData("TweetyBird loop", () ->
+        String.format("%.0f Hz  %d overruns", scheduler.getMeasuredFrequency(), scheduler.getOverrunCount()))
+        .setRetained(true);
+    if (latency != null) {
+      for (TweetyBird.TickPhase phase : TweetyBird.TickPhase.values()) {
+        LatencyHistogram histogram = latency[phase.ordinal()];
+        telemetry.addData("TweetyBird "+phase.name().toLowerCase()+" us", () ->
+            String.format("p50 %.0f  p99 %.0f  max %.0f", histogram.getMedian()/1e3,
+                histogram.getPercentile(99)/1e3, histogram.getMax()/1e3)).setRetained(true);
+      }
+    }
+  }
+
+  /**
+   * Stores the values from a tick and sends a telemetry update if the interval has passed
+   * @param time Tick start from the configured clock
+   * @param pose Robot position
+   * @param waypointIndex Index of the targeted waypoint
+   * @param waypointCount Number of waypoints in the queue
+   * @param distanceToTarget Distance to the targeted waypoint
+   * @param distanceToEnd Distance left on the path
+   * @param speed Computed speed
+   * @param axial Axial output
+   * @param lateral Lateral output
+   * @param yaw Yaw output
+   * @param onTarget Whether the robot is on target
+   * @param onRotation Whether the robot is on rotation
+   * @param engaged Whether TweetyBird is engaged
+   */
+  public void update(long time, Pose pose, int waypointIndex, int waypointCount,
+                     double distanceToTarget, double distanceToEnd, double speed,
+                     double axial, double lateral, double yaw,
+                     boolean onTarget, boolean onRotation, boolean engaged) {
+    this.x = pose.getX();
+    this.y = pose.getY();
+    this.z = pose.getZ();
+    this.waypointIndex = waypointIndex;
+    this.waypointCount = waypointCount;
+    this.distanceToTarget = distanceToTarget;
+    this.distanceToEnd = distanceToEnd;
+    this.speed = speed;
+    this.axial = axial;
+    this.lateral = lateral;
+    this.yaw = yaw;
+    this.onTarget = onTarget;
+    this.onRotation = onRotation;
+    this.engaged = engaged;
+
+    if (!sent || time-lastUpdate >= intervalNanos) {
+      sent = true;
+      lastUpdate = time;
+      telemetry.update();
+    }
+  }
+}
@@ -13,8 +13,9 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.SimpleFormatter;
 
 /**
@@ -23,6 +24,8 @@ import java.util.logging.SimpleFormatter;
 public class TweetyBird {
 
   private static final Logger log = LoggerFactory.getLogger(TweetyBird.class);
+  private static final long STOP_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+  private static final long CLOSE_TIMEOUT_MILLIS = 500;
 
   /**
    * An interface for TweetyBird to define the structure of a odometer class
@@ -33,6 +36,121 @@ public class TweetyBird {
     double getY();
     double getZ();
     void resetTo(double x, double y, double z);
+
+    /**
+     * Fills the passed pose with the robot's current position. The default reads each getter,
+     * odometers should override this so all three values come from a single update.
+     * @param pose Pose to be filled
+     */
+    default void getPose(Pose pose) {
+      pose.set(getX(), getY(), getZ());
+    }
+
+    /**
+     * Called by the runtime once at the start of every tick before the pose is read,
+     * odometers that cache hardware reads should refresh their cache here.
+     */
+    default void onTickStart() {}
+
+    /**
+     * Called by the runtime once the tick is done reading the odometer, odometers that cache
+     * hardware reads should go back to refreshing on every read here.
+     */
+    default void onTickEnd() {}
+  }
+
+  /**
+   * An optional extension of the odometer for odometers that can also estimate velocity,
+   * values are filtered and come from timestamped samples.
+   */
+  public interface VelocityOdometer extends Odometer {
+    /**
+     * Fills the passed pose with the field relative velocity, x and y in units per second and z
+     * in radians per second
+     * @param velocity Pose to be filled
+     */
+    void getVelocity(Pose velocity);
+
+    /**
+     * Fills the passed pose with the robot relative velocity, x is lateral and y is axial in
+     * units per second and z is in radians per second
+     * @param velocity Pose to be filled
+     */
+    void getRobotVelocity(Pose velocity);
+
+    /**
+     * Returns when the newest sample used by the velocity estimate was taken
+     * @return Monotonic time in nanoseconds
+     */
+    long getTimestamp();
+  }
+
+  /**
+   * Levels used to filter TweetyBird's log messages, from most to least verbose.
+   */
+  public enum LogLevel {
+    /** Values from every runtime tick */
+    TRACE,
+    /** Setup and queue changes */
+    DEBUG,
+    /** Important state changes */
+    INFO,
+    /** Problems that TweetyBird recovered from */
+    WARN
+  }
+
+  /**
+   * Ways TweetyBird can use the OpMode's telemetry.
+   */
+  public enum TelemetryMode {
+    /** Debug messages are sent to telemetry one line at a time when debugging is enabled */
+    LOG,
+    /** A fixed summary is updated at most once per telemetry interval, debug messages go to the console */
+    SUMMARY,
+    /** Telemetry is left alone, debug messages go to the console */
+    OFF
+  }
+
+  /**
+   * Ways TweetyBird can pick its speed along a path.
+   */
+  public enum ProfileType {
+    /** Speed ramps linearly with distance using the speed modifier */
+    LINEAR,
+    /** Constant acceleration up to the maximum velocity and back down */
+    TRAPEZOIDAL,
+    /** Like TRAPEZOIDAL but acceleration also changes gradually, limited by the maximum jerk */
+    S_CURVE
+  }
+
+  /**
+   * Ways TweetyBird can steer along a path.
+   */
+  public enum FollowerMode {
+    /** Drives straight at each waypoint in turn */
+    WAYPOINT,
+    /** Steers towards a point a lookahead distance further along the path */
+    PURE_PURSUIT
+  }
+
+  /**
+   * Parts of a runtime tick that are timed when latency tracking is enabled.
+   */
+  public enum TickPhase {
+    /** Reading the robot's position from the odometer */
+    SENSE,
+    /** Reading the queue and working out the speed and outputs */
+    PLAN,
+    /** Sending outputs to the driver and updating the queue */
+    ACT,
+    /** Trace messages, flight recorder, and telemetry */
+    LOG,
+    /** The whole tick */
+    TICK,
+    /** From the start of the odometer read to the driver command, measured with the clock */
+    SENSE_TO_ACT,
+    /** Age of the pose a tick plans from, measured with the clock, only in pipelined mode */
+    POSE_AGE
   }
 
   /**
@@ -51,14 +169,32 @@ public class TweetyBird {
   protected final WaypointQueue waypointQueue;
   protected final double distanceBuffer, rotationBuffer;
   protected double minSpeed, maxSpeed;
-  protected final double speedModifier, correctionOverpower;
+  protected final double speedModifier;
   protected final boolean debuggingEnabled, loggingEnabled;
+  protected final LogLevel logLevel;
+  protected final double targetFrequency;
+  protected final Clock clock;
+  protected final boolean manualStepping;
+  protected final boolean latencyTrackingEnabled;
+  protected final MotionProfile motionProfile;
+  protected final FollowerMode followerMode;
+  protected final double minLookahead, maxLookahead;
+  protected final boolean latencyCompensationEnabled;
+  protected final double actuationLatency;
+  protected final boolean pipelineEnabled;
+  protected final double localizationFrequency;
+  protected final Controller controller;
 
   // Other classes used by TweetyBird
   protected final Runtime runtime;
 
-  // Log file writer
+  // Log output
   protected BufferedWriter logWriter = null;
+  protected LogSink logSink = null;
+  protected FlightRecorder flightRecorder = null;
+  protected TelemetryReporter telemetryReporter = null;
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+  protected final TelemetryMode telemetryMode;
 
   /**
    * This method has been renamed, please use addWaypoint(x, y, z) instead
@@ -78,7 +214,40 @@ public class TweetyBird {
    * @param z Target Z
    */
   public void addWaypoint(double x, double y, double z) {
-    waypointQueue.addWaypoint(new Waypoint(x, y, Math.toRadians(z)));
+    waypointQueue.addWaypoint(x, y, Math.toRadians(z));
+  }
+
+  /**
+   * Creates a new waypoint and adds it to the end of TweetyBird's queue, the returned future
+   * completes once the waypoint is reached and is cancelled if the waypoint is skipped or cleared.
+   * Callbacks added with the non async methods run on the runtime thread, keep them short.
+   * @param x Target X
+   * @param y Target Y
+   * @param z Target Z
+   * @return Completion of the new waypoint
+   */
+  public CompletableFuture<Waypoint> addWaypointAsync(double x, double y, double z) {
+    return waypointQueue.addWaypointAsync(x, y, Math.toRadians(z));
+  }
+
+  /**
+   * Adds a smooth path to the end of TweetyBird's queue as waypoints placed evenly along the
+   * spline, works best with the PURE_PURSUIT follower mode which steers along the curve
+   * between them instead of stopping to aim at each one
+   * @param spline Spline to follow
+   * @param spacing Distance between waypoints along the spline, must be greater than 0
+   */
+  public void addSpline(Spline spline, double spacing) {
+    waypointQueue.addSpline(spline, spacing);
+  }
+
+  /**
+   * Adds a path compiled ahead of time to the end of TweetyBird's queue, load the paths with
+   * PathCache.read() during init so nothing has to be sampled or measured once the OpMode starts
+   * @param compiled Path from a path cache
+   */
+  public void addPath(PathCache.Path compiled) {
+    waypointQueue.addPath(compiled);
   }
 
   /**
@@ -88,18 +257,14 @@ public class TweetyBird {
    * @param z Target Z
    */
   public void injectWaypoint(double x, double y, double z) {
-    waypointQueue.addWaypoint(waypointQueue.getIndex(), new Waypoint(x, y, Math.toRadians(z)));
+    waypointQueue.injectWaypoint(x, y, Math.toRadians(z));
   }
 
   /**
    * Skips the current targeted waypoint
    */
   public void skipWaypoint() {
-    if (waypointQueue.getIndex() == waypointQueue.getSize() -1) { // Resetting at end of queue
-      waypointQueue.clear();
-    } else { // Skip next waypoint
-      waypointQueue.increment();
-    }
+    waypointQueue.skip();
   }
 
   /**
@@ -133,6 +298,7 @@ public class TweetyBird {
    */
   public void setMaxSpeed(double speed) {
     maxSpeed = Range.clip(speed, minSpeed, 1);
+    runtime.follower.setSpeedLimits(minSpeed, maxSpeed);
   }
 
   /**
@@ -141,28 +307,162 @@ public class TweetyBird {
    */
   public void setMinSpeed(double speed) {
     minSpeed = Range.clip(speed, 0, maxSpeed);
+    runtime.follower.setSpeedLimits(minSpeed, maxSpeed);
   }
 
   /**
-   * Returns whether the mover is currently in progress or not
+   * Returns whether the mover is currently in progress or not, this includes waypoints left in
+   * the queue and the runtime driving back onto the waypoint it is holding
    * @return Busy
    */
   public boolean isBusy() {
-    return waypointQueue.getSize()>1;
+    return waypointQueue.getSize()>1 || runtime.busy;
   }
 
   /**
-   * Will wait in a while loop until isBusy() is false
+   * Blocks until isBusy() is false, the OpMode is stopped, or the thread is interrupted
    */
   public void waitWhileBusy() {
-    if (opMode != null) {
-      opMode.sleep(100);
-      while (isBusy() && opMode.opModeIsActive());
-    } else {
+    waitWhileBusy(0);
+  }
+
+  /**
+   * Blocks until isBusy() is false, the OpMode is stopped, the thread is interrupted, or the
+   * timeout passes. The runtime wakes the waiting thread when it stops moving or the queue
+   * empties, the OpMode is only checked every few milliseconds since it has no way to signal a
+   * stop.
+   * @param timeoutMillis Longest time to wait in milliseconds, zero waits without a timeout
+   * @return Whether TweetyBird finished the queue
+   */
+  public boolean waitWhileBusy(long timeoutMillis) {
+    long deadline = System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (isBusy()) {
+      if (opMode != null && (opMode.isStopRequested() || !opMode.opModeIsActive())) {
+        return false;
+      }
+      long wait = STOP_CHECK_NANOS;
+      if (timeoutMillis > 0) {
+        long remaining = deadline-System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        wait = Math.min(wait, remaining);
+      }
       try {
-        wait(100);
-      } catch (InterruptedException e) {}
-      while (isBusy());
+        runtime.awaitIdle(wait);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Runs a single runtime tick on the calling thread, only available when manual stepping is
+   * enabled in the builder
+   */
+  public void step() {
+    if (!manualStepping) {
+      throw new IllegalStateException("Manual stepping is not enabled");
+    }
+    runtime.step();
+  }
+
+  /**
+   * Returns the frequency the runtime loop was configured to run at
+   * @return Ticks per second, zero if unlimited
+   */
+  public double getTargetFrequency() {
+    return runtime.scheduler.getTargetFrequency();
+  }
+
+  /**
+   * Returns the smoothed frequency the runtime loop is actually running at
+   * @return Ticks per second
+   */
+  public double getLoopFrequency() {
+    return runtime.scheduler.getMeasuredFrequency();
+  }
+
+  /**
+   * Returns how many times the runtime loop has run
+   * @return Tick count
+   */
+  public long getTickCount() {
+    return runtime.scheduler.getTickCount();
+  }
+
+  /**
+   * Returns how many runtime ticks took longer than their time slot,
+   * a growing number means the target frequency is set too high for the hardware
+   * @return Overrun count
+   */
+  public long getOverrunCount() {
+    return runtime.scheduler.getOverrunCount();
+  }
+
+  /**
+   * Returns the smoothed frequency the localization stage is running at in pipelined mode
+   * @return Ticks per second, zero if the pipeline is disabled
+   */
+  public double getLocalizationFrequency() {
+    return runtime.localizer != null ? runtime.localizer.scheduler.getMeasuredFrequency() : 0;
+  }
+
+  /**
+   * Returns how many times the localization stage has run in pipelined mode
+   * @return Tick count, zero if the pipeline is disabled
+   */
+  public long getLocalizationTickCount() {
+    return runtime.localizer != null ? runtime.localizer.scheduler.getTickCount() : 0;
+  }
+
+  /**
+   * Returns how many localization ticks took longer than their time slot in pipelined mode,
+   * a growing number means the odometer can not be read at the localization frequency
+   * @return Overrun count, zero if the pipeline is disabled
+   */
+  public long getLocalizationOverrunCount() {
+    return runtime.localizer != null ? runtime.localizer.scheduler.getOverrunCount() : 0;
+  }
+
+  /**
+   * Returns how many log messages were thrown away because the log buffer was full
+   * @return Dropped message count
+   */
+  public long getDroppedLogCount() {
+    return logSink != null ? logSink.getDroppedCount() : 0;
+  }
+
+  /**
+   * Returns the timing histogram of a part of the runtime tick, use getMedian(),
+   * getPercentile(99), and getMax() on it to find where tick time is going
+   * @param phase Part of the tick
+   * @return Histogram in nanoseconds, null if latency tracking is disabled
+   */
+  public LatencyHistogram getLatency(TickPhase phase) {
+    return runtime.latency != null ? runtime.latency[phase.ordinal()] : null;
+  }
+
+  /**
+   * Returns the smoothed time from reading the odometer to commanding the driver, this is
+   * measured on every tick that moves the robot and is how far ahead the pose is predicted
+   * when latency compensation is enabled, on top of the configured actuation latency
+   * @return Seconds
+   */
+  public double getSenseToActLatency() {
+    return runtime.senseToActLatency;
+  }
+
+  /**
+   * Clears every tick timing histogram, useful to measure a single part of an OpMode
+   */
+  public void resetLatency() {
+    if (runtime.latency != null) {
+      for (LatencyHistogram histogram : runtime.latency) {
+        histogram.reset();
+      }
     }
   }
 
@@ -190,19 +490,57 @@ public class TweetyBird {
   }
 
   /**
-   * Terminates TweetyBird
+   * Terminates TweetyBird, the runtime and localizer threads are stopped and given a moment to
+   * finish their tick before the flight recorder and log are closed. Only the first call does
+   * anything.
    */
   public void close() {
-    log("TweetyBird close called, shutting down...");
-    try {
-      if (logWriter != null) {
-        logWriter.flush();
-        logWriter.close();
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    log(LogLevel.INFO, "TweetyBird close called, shutting down...");
+    stopThread(runtime.localizer);
+    stopThread(runtime);
+    if (flightRecorder != null) {
+      try {
+        flightRecorder.close();
+      } catch (IOException e) {
+        log(LogLevel.WARN, "Failed to save flight recording "+e);
       }
-    } catch (IOException e) {
-      log("Failed to shutdown logWriter");
     }
-    runtime.interrupt();
+    if (logSink != null) {
+      logSink.close();
+    }
+  }
+
+  /**
+   * Interrupts a thread and waits a bounded time for it to finish, a thread can not wait for
+   * itself so that is skipped when the runtime closes TweetyBird
+   * @param thread Thread to stop, may be null
+   */
+  private void stopThread(Thread thread) {
+    if (thread == null || thread == Thread.currentThread()) {
+      return;
+    }
+    thread.interrupt();
+    try {
+      thread.join(CLOSE_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (thread.isAlive()) {
+      log(LogLevel.WARN, thread.getName()+" did not stop in time");
+    }
+  }
+
+  /**
+   * Returns whether a message at the passed level would be sent anywhere, use this to skip
+   * building expensive log messages
+   * @param level Level of the message
+   * @return Whether the message would be logged
+   */
+  protected boolean isLoggable(LogLevel level) {
+    return logSink != null && level.ordinal() >= logLevel.ordinal();
   }
 
   /**
@@ -210,34 +548,89 @@ public class TweetyBird {
    * @param message message to be sent
    */
   protected void log(String message) {
-    // Getting current time
-    Date now = new Date();
-    SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/YYYY hh:mm:ss.SSS");
-    String date = sdf.format(now);
+    log(LogLevel.DEBUG, message);
+  }
 
-    // Processing string
-    String outputString = "["+date+" TweetyBird]: "+message;
+  /**
+   * Internal method used to send leveled messages
+   * @param level Level of the message
+   * @param message message to be sent
+   */
+  protected void log(LogLevel level, String message) {
+    if (isLoggable(level)) {
+      logSink.publish(message, 0, 0, 0, 0);
+    }
+  }
 
-    // Logfile
-    if (loggingEnabled && logWriter != null) {
-      try {
-        logWriter.write(outputString);
-        logWriter.newLine();
-      } catch (IOException e) {}
-    }
-
-    // Console
-    if (debuggingEnabled) {
-      if (opMode == null) { // Normal
-        System.out.println(outputString);
-      } else { // FTC
-        opMode.telemetry.addLine(outputString);
-        opMode.telemetry.setAutoClear(false);
-        opMode.telemetry.update();
-      }
+  /**
+   * Internal method used to send leveled messages, each {} in the format is replaced by the
+   * next value only if the message will be logged
+   * @param level Level of the message
+   * @param format Message with {} placeholders
+   * @param a First value
+   */
+  protected void log(LogLevel level, String format, double a) {
+    if (isLoggable(level)) {
+      logSink.publish(format, 1, a, 0, 0);
     }
   }
 
+  /**
+   * Internal method used to send leveled messages, each {} in the format is replaced by the
+   * next value only if the message will be logged
+   * @param level Level of the message
+   * @param format Message with {} placeholders
+   * @param a First value
+   * @param b Second value
+   */
+  protected void log(LogLevel level, String format, double a, double b) {
+    if (isLoggable(level)) {
+      logSink.publish(format, 2, a, b, 0);
+    }
+  }
+
+  /**
+   * Internal method used to send leveled messages, each {} in the format is replaced by the
+   * next value only if the message will be logged
+   * @param level Level of the message
+   * @param format Message with {} placeholders
+   * @param a First value
+   * @param b Second value
+   * @param c Third value
+   */
+  protected void log(LogLevel level, String format, double a, double b, double c) {
+    if (isLoggable(level)) {
+      logSink.publish(format, 3, a, b, c);
+    }
+  }
+
+  /**
+   * Sends a finished log line to the console, this runs on the log writer thread
+   * @param outputString Timestamped message
+   */
+  private void printToConsole(String outputString) {
+    if (opMode == null || telemetryMode != TelemetryMode.LOG) { // Normal
+      System.out.println(outputString);
+    } else { // FTC
+      opMode.telemetry.addLine(outputString);
+      opMode.telemetry.setAutoClear(false);
+      opMode.telemetry.update();
+    }
+  }
+
+  /**
+   * Returns where an output file should be stored, on the robot this is the external storage
+   * directory, otherwise it is the working directory
+   * @param fileName Name of the file
+   * @return File location
+   */
+  private File outputFile(String fileName) {
+    if (opMode != null) {
+      return new File(Environment.getExternalStorageDirectory(), fileName);
+    }
+    return new File(fileName);
+  }
+
   /**
    * Do NOT call this method yourself, instead use the builder to start TweetyBird
    * @param builder Passed builder
@@ -250,36 +643,92 @@ public class TweetyBird {
     this.minSpeed = builder.minSpeed;
     this.maxSpeed = builder.maxSpeed;
     this.speedModifier = builder.speedModifier;
-    this.correctionOverpower = 5;
     this.distanceBuffer = builder.distanceBuffer;
     this.rotationBuffer = Math.toRadians(builder.rotationBuffer);
     this.debuggingEnabled = builder.debuggingEnabled;
     this.loggingEnabled = builder.loggingEnabled;
+    this.logLevel = builder.logLevel;
+    this.targetFrequency = builder.targetFrequency;
+    this.telemetryMode = builder.telemetryMode;
+    this.clock = builder.clock;
+    this.manualStepping = builder.manualStepping;
+    this.latencyTrackingEnabled = builder.latencyTrackingEnabled;
+    if (builder.cachedProfile != null) {
+      this.motionProfile = builder.cachedProfile;
+    } else if (builder.profileType != ProfileType.LINEAR && builder.maxVelocity > 0) {
+      this.motionProfile = new MotionProfile(builder.maxVelocity, builder.maxAcceleration,
+          builder.profileType == ProfileType.S_CURVE ? builder.maxJerk : 0);
+    } else {
+      this.motionProfile = null;
+    }
+    this.followerMode = builder.followerMode;
+    this.minLookahead = builder.minLookahead;
+    this.maxLookahead = builder.maxLookahead;
+    this.latencyCompensationEnabled = builder.latencyCompensationEnabled;
+    this.actuationLatency = builder.actuationLatency;
+    this.pipelineEnabled = builder.pipelineEnabled;
+    this.localizationFrequency = builder.localizationFrequency;
+    if (builder.controller != null) {
+      this.controller = builder.controller;
+    } else {
+      PIDFController pidf = new PIDFController(builder.maxVelocity,
+          Math.toRadians(builder.maxAngularVelocity));
+      pidf.setTranslationPIDF(builder.translationP, builder.translationI, builder.translationD,
+          builder.translationF);
+      pidf.setTranslationFeedforward(builder.translationS, builder.translationV,
+          builder.translationA);
+      pidf.setHeadingPIDF(builder.headingP, builder.headingI, builder.headingD, builder.headingF);
+      pidf.setHeadingFeedforward(builder.headingS, builder.headingV, builder.headingA);
+      this.controller = pidf;
+    }
+
+    // Setting up log file
+    IOException logFileException = null;
+    if (loggingEnabled) {
+      try {
+        logWriter = new BufferedWriter(new FileWriter(outputFile("tweetyBirdLog.txt"), true));
+      } catch (IOException e) {
+        logFileException = e;
+      }
+    }
+
+    // Starting log output
+    if (logWriter != null || debuggingEnabled) {
+      logSink = new LogSink(builder.logBufferSize, builder.logOverflowPolicy, logWriter,
+          debuggingEnabled ? this::printToConsole : null);
+    }
+    if (logFileException != null) {
+      log(LogLevel.WARN, "Failed to initialize to logWriter "+logFileException);
+    }
+
+    // Setting up flight recorder
+    if (builder.flightRecorderEnabled) {
+      try {
+        flightRecorder = new FlightRecorder(outputFile("tweetyBirdFlight.bin"),
+            builder.flightRecorderCapacity);
+      } catch (IOException e) {
+        log(LogLevel.WARN, "Failed to initialize flight recorder "+e);
+      }
+    }
 
     // Setting up queue
     waypointQueue = new WaypointQueue(this);
 
     // Starting runtime
     runtime = new Runtime(this);
-    runtime.start();
-
-    // Setting up log file
-    String logFileName = "tweetyBirdLog.txt";
-    File logFile;
-    if (opMode != null) {
-      File logDirectory = Environment.getExternalStorageDirectory();
-      logFile = new File(logDirectory, logFileName);
-    } else {
-      logFile = new File(logFileName);
+    if (opMode != null && telemetryMode == TelemetryMode.SUMMARY) {
+      telemetryReporter = new TelemetryReporter(opMode.telemetry, runtime.scheduler,
+          builder.telemetryInterval, builder.latencyTelemetryEnabled ? runtime.latency : null);
     }
-    try {
-      logWriter = new BufferedWriter(new FileWriter(logFile, true));
-    } catch (IOException e) {
-      log("Failed to initialize to logWriter "+e);
+    if (!manualStepping) {
+      if (runtime.localizer != null) {
+        runtime.localizer.start();
+      }
+      runtime.start();
     }
 
     // Done
-    log("Initial setup complete!\n");
+    log(LogLevel.INFO, "Initial setup complete!\n");
   }
 
   /**
@@ -395,12 +844,214 @@ public class TweetyBird {
       return this;
     }
 
+    private ProfileType profileType = ProfileType.LINEAR;
+
+    /**
+     * OPTIONAL
+     * This will define how TweetyBird picks its speed along a path, LINEAR uses the speed
+     * modifier, TRAPEZOIDAL and S_CURVE follow the maximum velocity, acceleration, and jerk,
+     * the default value is LINEAR.
+     * @param profileType Profile type
+     * @return Updated builder
+     */
+    public Builder setMotionProfile(ProfileType profileType) {
+      this.profileType = profileType;
+      return this;
+    }
+
+    private MotionProfile cachedProfile = null;
+
+    /**
+     * OPTIONAL
+     * This will use a motion profile that was already built, such as the one loaded from a
+     * PathCache, instead of building one from the profile type and limits, the profile type,
+     * max acceleration, and max jerk are then ignored,
+     * the default value is null.
+     * @param motionProfile Prebuilt profile, null to build one
+     * @return Updated builder
+     */
+    public Builder setMotionProfile(MotionProfile motionProfile) {
+      this.cachedProfile = motionProfile;
+      return this;
+    }
+
+    private double maxVelocity = 50;
+
+    /**
+     * OPTIONAL
+     * This value will define how fast the robot moves at the maximum speed, used by the
+     * TRAPEZOIDAL and S_CURVE profiles and the translation feedforward of the default
+     * controller, the maximum speed is reached at this velocity,
+     * the default value is 50 units per second.
+     * @param maxVelocity Units per second, must be greater than 0
+     * @return Updated builder
+     */
+    public Builder setMaxVelocity(double maxVelocity) {
+      this.maxVelocity = maxVelocity;
+      return this;
+    }
+
+    private double maxAcceleration = 50;
+
+    /**
+     * OPTIONAL
+     * This value will define how quickly the robot speeds up and slows down, used by the
+     * TRAPEZOIDAL and S_CURVE profiles,
+     * the default value is 50 units per second squared.
+     * @param maxAcceleration Units per second squared
+     * @return Updated builder
+     */
+    public Builder setMaxAcceleration(double maxAcceleration) {
+      this.maxAcceleration = maxAcceleration;
+      return this;
+    }
+
+    private double maxJerk = 250;
+
+    /**
+     * OPTIONAL
+     * This value will define how quickly the acceleration can change, used by the S_CURVE
+     * profile,
+     * the default value is 250 units per second cubed.
+     * @param maxJerk Units per second cubed
+     * @return Updated builder
+     */
+    public Builder setMaxJerk(double maxJerk) {
+      this.maxJerk = maxJerk;
+      return this;
+    }
+
+    private FollowerMode followerMode = FollowerMode.WAYPOINT;
+
+    /**
+     * OPTIONAL
+     * This will define how TweetyBird steers along a path, WAYPOINT drives straight at each
+     * waypoint, PURE_PURSUIT follows the lines between waypoints using the lookahead distances,
+     * the default value is WAYPOINT.
+     * @param followerMode Follower mode
+     * @return Updated builder
+     */
+    public Builder setFollowerMode(FollowerMode followerMode) {
+      this.followerMode = followerMode;
+      return this;
+    }
+
+    private double minLookahead = 6;
+
+    /**
+     * OPTIONAL
+     * This value will define how far ahead on the path the robot steers at the minimum speed,
+     * used by PURE_PURSUIT,
+     * the default value is 6.
+     * @param minLookahead Distance
+     * @return Updated builder
+     */
+    public Builder setMinimumLookahead(double minLookahead) {
+      this.minLookahead = minLookahead;
+      return this;
+    }
+
+    private double maxLookahead = 18;
+
+    /**
+     * OPTIONAL
+     * This value will define how far ahead on the path the robot steers at the maximum speed,
+     * used by PURE_PURSUIT, longer distances are smoother but cut corners more,
+     * the default value is 18.
+     * @param maxLookahead Distance
+     * @return Updated builder
+     */
+    public Builder setMaximumLookahead(double maxLookahead) {
+      this.maxLookahead = maxLookahead;
+      return this;
+    }
+
+    private boolean pipelineEnabled = false;
+
+    /**
+     * OPTIONAL
+     * This will read the odometer on its own thread at the localization frequency, the
+     * runtime then plans from the newest published pose at the target frequency, so slow
+     * driver writes or logging no longer slow down the odometry. Once the localizer has
+     * published a pose the queue reads that pose instead of the odometer, resetPosition still
+     * calls the odometer from the calling thread so only use it while TweetyBird is idle or
+     * before start. With manual stepping
+     * each step() runs one localization tick followed by one runtime tick,
+     * the default value is false.
+     * @param pipelineEnabled Whether to localize on a separate thread
+     * @return Updated builder
+     */
+    public Builder setPipelineEnabled(boolean pipelineEnabled) {
+      this.pipelineEnabled = pipelineEnabled;
+      return this;
+    }
+
+    private double localizationFrequency = 400;
+
+    /**
+     * OPTIONAL
+     * This value will define how many times per second the odometer is read in pipelined mode,
+     * zero or less will run as fast as possible,
+     * the default value is 400.
+     * @param localizationFrequency Ticks per second
+     * @return Updated builder
+     */
+    public Builder setLocalizationFrequency(double localizationFrequency) {
+      this.localizationFrequency = localizationFrequency;
+      return this;
+    }
+
+    private double targetFrequency = 100;
+
+    /**
+     * OPTIONAL
+     * This value will define how many times per second the runtime loop runs,
+     * values between 50 and 500 work well, zero or less will run as fast as possible,
+     * the default value is 100.
+     * @param targetFrequency Ticks per second
+     * @return Updated builder
+     */
+    public Builder setTargetFrequency(double targetFrequency) {
+      this.targetFrequency = targetFrequency;
+      return this;
+    }
+
+    private Clock clock = System::nanoTime;
+
+    /**
+     * OPTIONAL
+     * This will replace the time source used to measure and time runtime ticks,
+     * the default value is System.nanoTime().
+     * @param clock Time source
+     * @return Updated builder
+     */
+    public Builder setClock(Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    private boolean manualStepping = false;
+
+    /**
+     * OPTIONAL
+     * This will keep the runtime thread from starting, ticks are then only run by calling
+     * step() which is used to drive TweetyBird from a simulation, waitWhileBusy() will not
+     * return on its own in this mode,
+     * the default value is false.
+     * @param manualStepping Whether ticks are run by calling step()
+     * @return Updated builder
+     */
+    public Builder setManualStepping(boolean manualStepping) {
+      this.manualStepping = manualStepping;
+      return this;
+    }
+
     private boolean debuggingEnabled = false;
 
     /**
      * NOT RECOMMENDED
      * This wil flood your console with debug messages, only use for development
-     * and will slow the runtime loop without a linear op mode,
+     * and will slow the runtime loop when the telemetry mode is LOG,
      * the default value is false
      * @param debuggingEnabled Whether to enable debug logs
      * @return Updated builder
@@ -410,6 +1061,214 @@ public class TweetyBird {
       return this;
     }
 
+    private TelemetryMode telemetryMode = TelemetryMode.LOG;
+
+    /**
+     * OPTIONAL
+     * This will define how TweetyBird uses the OpMode's telemetry, LOG sends every debug message
+     * as its own update, SUMMARY shows a small set of values that is updated at most once per
+     * telemetry interval and is safe to leave on during real runs, OFF leaves telemetry alone,
+     * the default value is LOG.
+     * @param telemetryMode Telemetry mode
+     * @return Updated builder
+     */
+    public Builder setTelemetryMode(TelemetryMode telemetryMode) {
+      this.telemetryMode = telemetryMode;
+      return this;
+    }
+
+    private int telemetryInterval = 250;
+
+    /**
+     * OPTIONAL
+     * This value will define the minimum time between telemetry updates in SUMMARY mode,
+     * the default value is 250 milliseconds.
+     * @param telemetryInterval Milliseconds
+     * @return Updated builder
+     */
+    public Builder setTelemetryInterval(int telemetryInterval) {
+      this.telemetryInterval = telemetryInterval;
+      return this;
+    }
+
+    private boolean latencyTrackingEnabled = true;
+
+    /**
+     * OPTIONAL
+     * This will time each part of every runtime tick into fixed size histograms that can be
+     * read with getLatency(), it costs a few clock reads per tick and is safe to leave on,
+     * the default value is true.
+     * @param latencyTrackingEnabled Whether to time runtime ticks
+     * @return Updated builder
+     */
+    public Builder setLatencyTrackingEnabled(boolean latencyTrackingEnabled) {
+      this.latencyTrackingEnabled = latencyTrackingEnabled;
+      return this;
+    }
+
+    private boolean latencyTelemetryEnabled = false;
+
+    /**
+     * OPTIONAL
+     * This will add the median, 99th percentile, and longest time of each part of the tick to
+     * the SUMMARY telemetry, latency tracking must be enabled,
+     * the default value is false.
+     * @param latencyTelemetryEnabled Whether to show tick timings on telemetry
+     * @return Updated builder
+     */
+    public Builder setLatencyTelemetryEnabled(boolean latencyTelemetryEnabled) {
+      this.latencyTelemetryEnabled = latencyTelemetryEnabled;
+      return this;
+    }
+
+    private boolean latencyCompensationEnabled = false;
+
+    /**
+     * OPTIONAL
+     * This will predict where the robot will be when the motor command takes effect and plan
+     * from there, using the odometer's velocity and the measured sense to act latency plus the
+     * actuation latency. This reduces overshoot at high speed, the odometer must implement
+     * VelocityOdometer,
+     * the default value is false.
+     * @param latencyCompensationEnabled Whether to plan from the predicted pose
+     * @return Updated builder
+     */
+    public Builder setLatencyCompensationEnabled(boolean latencyCompensationEnabled) {
+      this.latencyCompensationEnabled = latencyCompensationEnabled;
+      return this;
+    }
+
+    private double actuationLatency = 0.02;
+
+    /**
+     * OPTIONAL
+     * This value will define how long the motors take to respond to a new command, it is added
+     * to the measured sense to act latency when predicting the pose,
+     * the default value is 0.02 seconds.
+     * @param actuationLatency Seconds
+     * @return Updated builder
+     */
+    public Builder setActuationLatency(double actuationLatency) {
+      this.actuationLatency = actuationLatency;
+      return this;
+    }
+
+    private Controller controller = null;
+
+    /**
+     * OPTIONAL
+     * A new class that implements TweetyBird's Controller interface, it turns the follower's
+     * results into driver outputs every tick, when set the PIDF and feedforward options below
+     * are ignored,
+     * the default value is a PIDFController using those options.
+     * @param controller Controller
+     * @return Updated builder
+     */
+    public Builder setController(Controller controller) {
+      this.controller = controller;
+      return this;
+    }
+
+    private double translationP = 0, translationI = 0, translationD = 0, translationF = 1;
+
+    /**
+     * OPTIONAL
+     * These values will define the feedback gains of the default controller for translation,
+     * the error is the distance to the current waypoint and kF scales the follower's speed,
+     * the integral only builds up within 6 units of the waypoint,
+     * the default values are 0, 0, 0, and 1 which send the follower's speed unchanged.
+     * @param kP Speed per unit of error
+     * @param kI Speed per unit second of error
+     * @param kD Speed per unit per second the error changes
+     * @param kF Speed per unit of the follower's speed
+     * @return Updated builder
+     */
+    public Builder setTranslationPIDF(double kP, double kI, double kD, double kF) {
+      this.translationP = kP;
+      this.translationI = kI;
+      this.translationD = kD;
+      this.translationF = kF;
+      return this;
+    }
+
+    private double translationS = 0, translationV = 0, translationA = 0;
+
+    /**
+     * OPTIONAL
+     * These values will define the feedforward gains of the default controller for
+     * translation, with a motion profile the velocity and acceleration are the profile's
+     * targets, without one the velocity is the follower's speed scaled so the maximum speed is
+     * the max velocity and the acceleration is measured between ticks,
+     * the default values are 0.
+     * @param kS Speed added to overcome static friction
+     * @param kV Speed per unit per second of velocity
+     * @param kA Speed per unit per second squared of acceleration
+     * @return Updated builder
+     */
+    public Builder setTranslationFeedforward(double kS, double kV, double kA) {
+      this.translationS = kS;
+      this.translationV = kV;
+      this.translationA = kA;
+      return this;
+    }
+
+    private double headingP = 0, headingI = 0, headingD = 0, headingF = 1;
+
+    /**
+     * OPTIONAL
+     * These values will define the feedback gains of the default controller for heading, the
+     * error is the rotation left to the target in radians and kF scales the follower's yaw,
+     * the integral only builds up within 15 degrees of the target,
+     * the default values are 0, 0, 0, and 1 which send the follower's yaw unchanged.
+     * @param kP Yaw per radian of error
+     * @param kI Yaw per radian second of error
+     * @param kD Yaw per radian per second the error changes
+     * @param kF Yaw per unit of the follower's yaw
+     * @return Updated builder
+     */
+    public Builder setHeadingPIDF(double kP, double kI, double kD, double kF) {
+      this.headingP = kP;
+      this.headingI = kI;
+      this.headingD = kD;
+      this.headingF = kF;
+      return this;
+    }
+
+    private double headingS = 0, headingV = 0, headingA = 0;
+
+    /**
+     * OPTIONAL
+     * These values will define the feedforward gains of the default controller for heading,
+     * the angular velocity asked for is the follower's yaw scaled so the maximum speed is the
+     * max angular velocity,
+     * the default values are 0.
+     * @param kS Yaw added to overcome static friction
+     * @param kV Yaw per radian per second of angular velocity
+     * @param kA Yaw per radian per second squared of angular acceleration
+     * @return Updated builder
+     */
+    public Builder setHeadingFeedforward(double kS, double kV, double kA) {
+      this.headingS = kS;
+      this.headingV = kV;
+      this.headingA = kA;
+      return this;
+    }
+
+    private double maxAngularVelocity = 180;
+
+    /**
+     * OPTIONAL
+     * This value will define how fast the robot turns at the maximum speed, used by the
+     * heading feedforward of the default controller,
+     * the default value is 180 degrees per second.
+     * @param maxAngularVelocity Degrees per second
+     * @return Updated builder
+     */
+    public Builder setMaxAngularVelocity(double maxAngularVelocity) {
+      this.maxAngularVelocity = maxAngularVelocity;
+      return this;
+    }
+
     private boolean loggingEnabled = false;
 
     /**
@@ -423,6 +1282,81 @@ public class TweetyBird {
       return this;
     }
 
+    private LogLevel logLevel = LogLevel.TRACE;
+
+    /**
+     * OPTIONAL
+     * This will only send debug and log file messages at or above the passed level,
+     * messages below it are skipped before they are built,
+     * the default value is TRACE.
+     * @param logLevel Lowest level to send
+     * @return Updated builder
+     */
+    public Builder setLogLevel(LogLevel logLevel) {
+      this.logLevel = logLevel;
+      return this;
+    }
+
+    private boolean flightRecorderEnabled = false;
+
+    /**
+     * OPTIONAL
+     * This will record the position, target, and outputs of every runtime tick into
+     * tweetyBirdFlight.bin using only a few bytes per tick, use FlightRecordExporter to read it,
+     * the default value is false.
+     * @param flightRecorderEnabled Whether to record every tick
+     * @return Updated builder
+     */
+    public Builder setFlightRecorderEnabled(boolean flightRecorderEnabled) {
+      this.flightRecorderEnabled = flightRecorderEnabled;
+      return this;
+    }
+
+    private int flightRecorderCapacity = 60000;
+
+    /**
+     * OPTIONAL
+     * This value will define how many ticks the flight recorder has room for, ticks after
+     * the recording is full are skipped,
+     * the default value is 60000 (10 minutes at 100 ticks per second).
+     * @param flightRecorderCapacity Number of ticks
+     * @return Updated builder
+     */
+    public Builder setFlightRecorderCapacity(int flightRecorderCapacity) {
+      this.flightRecorderCapacity = flightRecorderCapacity;
+      return this;
+    }
+
+    private int logBufferSize = 1024;
+
+    /**
+     * OPTIONAL
+     * This value will define how many log messages can be waiting to be written at once,
+     * the default value is 1024.
+     * @param logBufferSize Number of messages
+     * @return Updated builder
+     */
+    public Builder setLogBufferSize(int logBufferSize) {
+      this.logBufferSize = logBufferSize;
+      return this;
+    }
+
+    private LogSink.OverflowPolicy logOverflowPolicy = LogSink.OverflowPolicy.DROP;
+
+    /**
+     * OPTIONAL
+     * This will define what happens when log messages are created faster than they can be
+     * written, DROP throws the newest messages away and never slows down the runtime,
+     * BLOCK waits for room and can stall the runtime,
+     * the default value is DROP.
+     * @param logOverflowPolicy Overflow policy
+     * @return Updated builder
+     */
+    public Builder setLogOverflowPolicy(LogSink.OverflowPolicy logOverflowPolicy) {
+      this.logOverflowPolicy = logOverflowPolicy;
+      return this;
+    }
+
     /**
      * Will construct TweetyBird with the configuration defined within this builder and return
      * a new copy of TweetyBird.
@@ -1,16 +1,18 @@
 package dev.narlyx.tweetybird;
 
-import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Tracks and queues all waypoints internally for TweetyBird
+ * Tracks and queues all waypoints internally for TweetyBird. The queue is stored as an immutable
+ * WaypointPath snapshot, writers build the next version and publish it atomically, so readers
+ * never lock and never see a half finished change.
  */
 public class WaypointQueue {
   // Cache
   private final TweetyBird tweetyBird;
-  private final ArrayList<Waypoint> queue = new ArrayList<>();
-  private int currentIndex = 0;
-  private boolean updated = false;
+  private final AtomicReference<WaypointPath> path = new AtomicReference<>();
+  private volatile long lastReadVersion = 0;
 
   /**
    * Constructor
@@ -19,18 +21,88 @@ public class WaypointQueue {
   public WaypointQueue(TweetyBird tweetyBird) {
     this.tweetyBird = tweetyBird;
     tweetyBird.log("Queue adding placeholder waypoint");
-    addWaypoint(new Waypoint(tweetyBird.odometer.getX(),tweetyBird.odometer.getY(),tweetyBird.odometer.getZ()));
+    Pose pose = currentPose();
+    path.set(WaypointPath.of(pose.getX(), pose.getY(), pose.getZ()));
     tweetyBird.log("Queue setup");
   }
 
+  /**
+   * Returns the latest snapshot of the queue, read everything needed for a decision from the
+   * same snapshot so the values stay consistent with each other
+   * @return Current snapshot
+   */
+  public WaypointPath getSnapshot() {
+    WaypointPath snapshot = path.get();
+    lastReadVersion = snapshot.getVersion();
+    return snapshot;
+  }
+
   /**
    * Adds a new waypoint to the end of the queue
    * @param waypoint New waypoint to be added
    */
   public void addWaypoint(Waypoint waypoint) {
-    updated = true;
-    queue.add(waypoint);
-    tweetyBird.log("Queue new waypoint added X:"+waypoint.getX()+" Y:"+waypoint.getY()+" Z:"+waypoint.getZ());
+    addWaypoint(waypoint.getX(), waypoint.getY(), waypoint.getZ());
+  }
+
+  /**
+   * Adds a new waypoint to the end of the queue
+   * @param x Target X
+   * @param y Target Y
+   * @param z Target Z in radians
+   */
+  public void addWaypoint(double x, double y, double z) {
+    WaypointPath current;
+    do {
+      current = path.get();
+    } while (!path.compareAndSet(current, current.withAdded(x, y, z)));
+    tweetyBird.log(TweetyBird.LogLevel.DEBUG, "Queue new waypoint added X:{} Y:{} Z:{}", x, y, z);
+  }
+
+  /**
+   * Adds a new waypoint to the end of the queue and returns a future that completes with it
+   * once it is reached, or is cancelled if it is skipped or cleared first. The future is
+   * completed on the runtime thread, so use the async callbacks for anything slow.
+   * @param x Target X
+   * @param y Target Y
+   * @param z Target Z in radians
+   * @return Completion of the new waypoint
+   */
+  public CompletableFuture<Waypoint> addWaypointAsync(double x, double y, double z) {
+    CompletableFuture<Waypoint> completion = new CompletableFuture<>();
+    WaypointPath current;
+    do {
+      current = path.get();
+    } while (!path.compareAndSet(current, current.withAdded(x, y, z, completion)));
+    tweetyBird.log(TweetyBird.LogLevel.DEBUG, "Queue new waypoint added X:{} Y:{} Z:{}", x, y, z);
+    return completion;
+  }
+
+  /**
+   * Adds waypoints sampled along a spline to the end of the queue in one step
+   * @param spline Spline to follow
+   * @param spacing Distance between waypoints along the spline, must be greater than 0
+   */
+  public void addSpline(Spline spline, double spacing) {
+    WaypointPath current;
+    do {
+      current = path.get();
+    } while (!path.compareAndSet(current, current.withAdded(spline, spacing)));
+    tweetyBird.log(TweetyBird.LogLevel.DEBUG, "Queue spline added length:{} spacing:{}",
+        spline.getLength(), spacing);
+  }
+
+  /**
+   * Adds every waypoint of a compiled path to the end of the queue in one step
+   * @param compiled Path loaded from a path cache
+   */
+  public void addPath(PathCache.Path compiled) {
+    WaypointPath current;
+    do {
+      current = path.get();
+    } while (!path.compareAndSet(current, current.withAdded(compiled)));
+    tweetyBird.log(TweetyBird.LogLevel.DEBUG, "Queue compiled path added waypoints:{}",
+        compiled.getSize());
   }
 
   /**
@@ -39,37 +111,110 @@ public class WaypointQueue {
    * @param waypoint New waypoint to be added
    */
   public void addWaypoint(int index, Waypoint waypoint) {
-    updated = true;
-    queue.add(index, waypoint);
-    tweetyBird.log("Queue new waypoint added X:"+waypoint.getX()+" Y:"+waypoint.getY()+" Z:"+waypoint.getZ()+" at index:"+index);
+    WaypointPath current;
+    do {
+      current = path.get();
+    } while (!path.compareAndSet(current,
+        current.withInserted(index, waypoint.getX(), waypoint.getY(), waypoint.getZ())));
+    if (tweetyBird.isLoggable(TweetyBird.LogLevel.DEBUG)) {
+      tweetyBird.log(TweetyBird.LogLevel.DEBUG, "Queue new waypoint added X:"+waypoint.getX()+" Y:"+waypoint.getY()+" Z:"+waypoint.getZ()+" at index:"+index);
+    }
+  }
+
+  /**
+   * Adds a new waypoint at the current index so it is targeted immediately
+   * @param waypoint New waypoint to be added
+   */
+  public void injectWaypoint(Waypoint waypoint) {
+    injectWaypoint(waypoint.getX(), waypoint.getY(), waypoint.getZ());
+  }
+
+  /**
+   * Adds a new waypoint at the current index so it is targeted immediately
+   * @param x Target X
+   * @param y Target Y
+   * @param z Target Z in radians
+   */
+  public void injectWaypoint(double x, double y, double z) {
+    WaypointPath current;
+    do {
+      current = path.get();
+    } while (!path.compareAndSet(current, current.withInserted(current.getIndex(), x, y, z)));
+    tweetyBird.log(TweetyBird.LogLevel.DEBUG, "Queue waypoint injected X:{} Y:{} Z:{}", x, y, z);
   }
 
   /**
    * Moves on to the next waypoint in queue
    */
   public void increment() {
-    tweetyBird.log("Queue increment called...");
-    if (queue.size()>currentIndex+1) {
-      currentIndex += 1;
-      tweetyBird.log("Queue incremented");
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Queue increment called...");
+    WaypointPath current;
+    WaypointPath next;
+    do {
+      current = path.get();
+      next = current.withIncrement();
+    } while (next != current && !path.compareAndSet(current, next));
+    if (next != current) {
+      current.cancel(current.getIndex(), current.getIndex()+1);
+      tweetyBird.log(TweetyBird.LogLevel.DEBUG, "Queue incremented");
     } else {
-      tweetyBird.log("Queue not large enough to increment");
+      tweetyBird.log(TweetyBird.LogLevel.DEBUG, "Queue not large enough to increment");
     }
   }
 
+  /**
+   * Moves on to the next waypoint only if the queue has not changed since the passed snapshot
+   * was taken, this keeps a decision made on an old snapshot from skipping a new waypoint
+   * @param snapshot Snapshot the decision was based on
+   * @return Whether the queue was incremented
+   */
+  public boolean increment(WaypointPath snapshot) {
+    WaypointPath next = snapshot.withIncrement();
+    if (next != snapshot && path.compareAndSet(snapshot, next)) {
+      tweetyBird.log(TweetyBird.LogLevel.DEBUG, "Queue incremented");
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Skips the current waypoint, clearing the queue if it is the last one
+   */
+  public void skip() {
+    Pose placeholder = null;
+    WaypointPath current;
+    WaypointPath next;
+    do {
+      current = path.get();
+      if (current.getIndex() == current.getSize()-1) { // Resetting at end of queue
+        if (placeholder == null) {
+          placeholder = currentPose();
+        }
+        next = current.withCleared(placeholder.getX(), placeholder.getY(), placeholder.getZ());
+      } else { // Skip next waypoint
+        next = current.withIncrement();
+      }
+    } while (!path.compareAndSet(current, next));
+    if (next.getSize() == 1) {
+      current.cancel(0, current.getSize());
+      signalIdle();
+    } else {
+      current.cancel(current.getIndex(), current.getIndex()+1);
+    }
+    tweetyBird.log("Queue waypoint skipped");
+  }
+
   /**
    * Clears out all waypoints accept for the current index
    */
   public void clear() {
-    updated = true;
-    //Waypoint currentWaypoint = getCurrentWaypoint();
-    Waypoint currentWaypoint = new Waypoint(
-            tweetyBird.odometer.getX(),
-            tweetyBird.odometer.getY(),
-            tweetyBird.odometer.getZ());
-    queue.clear();
-    queue.add(currentWaypoint);
-    currentIndex = 0;
+    Pose pose = currentPose();
+    WaypointPath current;
+    do {
+      current = path.get();
+    } while (!path.compareAndSet(current, current.withCleared(pose.getX(), pose.getY(), pose.getZ())));
+    current.cancel(0, current.getSize());
+    signalIdle();
     tweetyBird.log("Queue cleared");
   }
 
@@ -77,20 +222,49 @@ public class WaypointQueue {
    * Clears out waypoints in queue from 0 to current index (inclusive)
    */
   public void clearToCurrentIndex(){
-    updated = true;
-    ArrayList<Waypoint> tempQueue = new ArrayList<>();
-    Waypoint currentWaypoint = new Waypoint(
-            tweetyBird.odometer.getX(),
-            tweetyBird.odometer.getY(),
-            tweetyBird.odometer.getZ());
-    for(int i = currentIndex; i < queue.size(); i++){
-      tempQueue.add(getWaypoint(i));
+    Pose pose = currentPose();
+    WaypointPath current;
+    WaypointPath next;
+    do {
+      current = path.get();
+      next = current.withClearedToCurrentIndex(pose.getX(), pose.getY(), pose.getZ());
+    } while (next != current && !path.compareAndSet(current, next));
+    if (next != current) {
+      current.cancel(0, current.getIndex()+1);
+      signalIdle();
+    }
+    tweetyBird.log(TweetyBird.LogLevel.TRACE, "Queue cleared up to current index");
+  }
+
+  /**
+   * Clears out waypoints in queue from 0 to current index (inclusive), only if the queue has
+   * not changed since the passed snapshot was taken. Nothing is created when the current index
+   * is already the first waypoint, so this is safe to call every tick while holding position.
+   * @param snapshot Snapshot the decision was based on
+   * @param pose Robot position to use as the new first waypoint
+   * @return Whether the queue was cleared
+   */
+  public boolean clearToCurrentIndex(WaypointPath snapshot, Pose pose) {
+    if (snapshot.getIndex() == 0 || path.get() != snapshot) {
+      return false;
+    }
+    WaypointPath next = snapshot.withClearedToCurrentIndex(pose.getX(), pose.getY(), pose.getZ());
+    if (path.compareAndSet(snapshot, next)) {
+      snapshot.cancel(0, snapshot.getIndex()+1);
+      signalIdle();
+      tweetyBird.log(TweetyBird.LogLevel.TRACE, "Queue cleared up to current index");
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Wakes every thread waiting for TweetyBird to be idle, called after the queue is emptied
+   */
+  private void signalIdle() {
+    if (tweetyBird.runtime != null) {
+      tweetyBird.runtime.signalIdle();
     }
-    queue.clear();
-    queue.add(currentWaypoint);
-    queue.addAll(tempQueue);
-    currentIndex = 0;
-    tweetyBird.log("Queue cleared up to current index");
   }
 
   /**
@@ -98,8 +272,7 @@ public class WaypointQueue {
    * @return Current index
    */
   public int getIndex() {
-    updated = false;
-    return currentIndex;
+    return getSnapshot().getIndex();
   }
 
   /**
@@ -107,8 +280,7 @@ public class WaypointQueue {
    * @return Size of queue
    */
   public int getSize() {
-    updated = false;
-    return queue.size();
+    return getSnapshot().getSize();
   }
 
   /**
@@ -116,8 +288,7 @@ public class WaypointQueue {
    * @return Current waypoint
    */
   public Waypoint getCurrentWaypoint() {
-    updated = false;
-    return queue.get(currentIndex);
+    return getSnapshot().getCurrentWaypoint();
   }
 
   /**
@@ -126,8 +297,36 @@ public class WaypointQueue {
    * @return Target waypoint
    */
   public Waypoint getWaypoint(int index) {
-    updated = false;
-    return queue.get(index);
+    return getSnapshot().getWaypoint(index);
+  }
+
+  /**
+   * Returns the distance along the path between two waypoints, this does not loop through the
+   * queue so it is safe to call every tick on long paths
+   * @param fromIndex Index of the first waypoint
+   * @param toIndex Index of the second waypoint
+   * @return Distance along the path
+   */
+  public double getPathLength(int fromIndex, int toIndex) {
+    return getSnapshot().getPathLength(fromIndex, toIndex);
+  }
+
+  /**
+   * Reads the robot's current position, with the pipeline enabled this is the newest pose the
+   * localization stage published so the odometer is only ever read on its thread, before the
+   * first publish the odometer is read directly since the localizer is still waiting for start
+   * @return Current position
+   */
+  private Pose currentPose() {
+    Pose pose = new Pose();
+    Runtime runtime = tweetyBird.runtime;
+    if (runtime != null && runtime.localizer != null
+        && runtime.localizer.poseBuffer.getPublishCount() > 0) {
+      runtime.localizer.poseBuffer.read(pose);
+    } else {
+      tweetyBird.odometer.getPose(pose);
+    }
+    return pose;
   }
 
   /**
@@ -135,7 +334,7 @@ public class WaypointQueue {
    * @return Updated since last query bool
    */
   public boolean getUpdated() {
-    return updated;
+    return path.get().getVersion() != lastReadVersion;
   }
 
 
@@ -0,0 +1,232 @@
+package dev.narlyx.tweetybird.Simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import dev.narlyx.tweetybird.TweetyBird;
+
+public class SimulationTester {
+
+  /**
+   * Builds a simulator with lag, noise, and encoder rounding
+   * @param seed Noise seed
+   * @return Simulator
+   */
+  private Simulator createSimulator(long seed) {
+    return createSimulator(seed, false);
+  }
+
+  /**
+   * Builds a simulator with lag, noise, and encoder rounding
+   * @param seed Noise seed
+   * @param pipelineEnabled Whether to localize in a separate stage
+   * @return Simulator
+   */
+  private Simulator createSimulator(long seed, boolean pipelineEnabled) {
+    SimulatedMecanum chassis = new SimulatedMecanum.Builder()
+        .setMotorTimeConstant(0.08)
+        .setPositionNoise(0.02)
+        .setRotationNoise(0.001)
+        .setDistancePerTick(0.002)
+        .setSeed(seed)
+        .build();
+    return new Simulator(chassis, new TweetyBird.Builder()
+        .setMinimumSpeed(0.2)
+        .setMaximumSpeed(0.8)
+        .setPipelineEnabled(pipelineEnabled), 100);
+  }
+
+  @Test
+  public void reachesPath() {
+    Simulator simulator = createSimulator(1);
+    TweetyBird tweetyBird = simulator.getTweetyBird();
+    tweetyBird.engage();
+    tweetyBird.addWaypoint(0, 24, 0);
+    tweetyBird.addWaypoint(24, 24, 90);
+
+    assertTrue(simulator.runUntilIdle(30));
+    SimulatedMecanum chassis = simulator.getChassis();
+    assertEquals(24, chassis.getTrueX(), 3);
+    assertEquals(24, chassis.getTrueY(), 3);
+    assertEquals(Math.PI/2, chassis.getTrueZ(), Math.toRadians(5));
+    tweetyBird.close();
+  }
+
+  @Test
+  public void reachesPathWithProfiles() {
+    for (TweetyBird.ProfileType profileType : TweetyBird.ProfileType.values()) {
+      SimulatedMecanum chassis = new SimulatedMecanum.Builder().setSeed(2).build();
+      Simulator simulator = new Simulator(chassis, new TweetyBird.Builder()
+          .setMinimumSpeed(0.2)
+          .setMaximumSpeed(0.8)
+          .setMotionProfile(profileType)
+          .setMaxVelocity(48)
+          .setMaxAcceleration(60)
+          .setMaxJerk(300), 100);
+      TweetyBird tweetyBird = simulator.getTweetyBird();
+      tweetyBird.engage();
+      tweetyBird.addWaypoint(0, 48, 0);
+      tweetyBird.addWaypoint(48, 48, 0);
+
+      assertTrue(profileType.name(), simulator.runUntilIdle(30));
+      assertEquals(profileType.name(), 48, chassis.getTrueX(), 3);
+      assertEquals(profileType.name(), 48, chassis.getTrueY(), 3);
+      tweetyBird.close();
+    }
+  }
+
+  @Test
+  public void followsPathWithPurePursuit() {
+    SimulatedMecanum chassis = new SimulatedMecanum.Builder().setSeed(3).build();
+    Simulator simulator = new Simulator(chassis, new TweetyBird.Builder()
+        .setMinimumSpeed(0.2)
+        .setMaximumSpeed(0.8)
+        .setFollowerMode(TweetyBird.FollowerMode.PURE_PURSUIT)
+        .setMinimumLookahead(4)
+        .setMaximumLookahead(10), 100);
+    TweetyBird tweetyBird = simulator.getTweetyBird();
+    tweetyBird.engage();
+    tweetyBird.addWaypoint(0, 48, 0);
+    tweetyBird.addWaypoint(48, 48, 0);
+
+    // The robot should stay close to the line while driving the first leg
+    double worstCrossTrack = 0;
+    while (chassis.getTrueY() < 40 && simulator.getClock().getSeconds() < 30) {
+      simulator.step();
+      worstCrossTrack = Math.max(worstCrossTrack, Math.abs(chassis.getTrueX()));
+    }
+    assertTrue("Cross track error "+worstCrossTrack, worstCrossTrack < 2);
+
+    assertTrue(simulator.runUntilIdle(30));
+    assertEquals(48, chassis.getTrueX(), 3);
+    assertEquals(48, chassis.getTrueY(), 3);
+    tweetyBird.close();
+  }
+
+  @Test
+  public void turnsOnLastLegWithPurePursuit() {
+    SimulatedMecanum chassis = new SimulatedMecanum.Builder().setSeed(9).build();
+    Simulator simulator = new Simulator(chassis, new TweetyBird.Builder()
+        .setMinimumSpeed(0.2)
+        .setMaximumSpeed(0.8)
+        .setFollowerMode(TweetyBird.FollowerMode.PURE_PURSUIT)
+        .setMinimumLookahead(4)
+        .setMaximumLookahead(10), 100);
+    TweetyBird tweetyBird = simulator.getTweetyBird();
+    tweetyBird.engage();
+    tweetyBird.addWaypoint(0, 48, 0);
+    tweetyBird.addWaypoint(48, 48, 90);
+
+    // Stopping short of the end of the leg must still turn all the way to the last heading
+    assertTrue(simulator.runUntilIdle(30));
+    assertEquals(48, chassis.getTrueX(), 3);
+    assertEquals(48, chassis.getTrueY(), 3);
+    assertEquals(Math.PI/2, chassis.getTrueZ(), Math.toRadians(5));
+    tweetyBird.close();
+  }
+
+  @Test
+  public void reachesPathWithLatencyCompensation() {
+    SimulatedMecanum chassis = new SimulatedMecanum.Builder()
+        .setMotorTimeConstant(0.1)
+        .setSeed(4)
+        .build();
+    Simulator simulator = new Simulator(chassis, new TweetyBird.Builder()
+        .setMinimumSpeed(0.2)
+        .setMaximumSpeed(1)
+        .setSpeedModifier(0.3)
+        .setDistanceBuffer(0.3)
+        .setLatencyCompensationEnabled(true)
+        .setActuationLatency(0.1), 100);
+    TweetyBird tweetyBird = simulator.getTweetyBird();
+    tweetyBird.engage();
+    tweetyBird.addWaypoint(0, 72, 0);
+
+    // Planning from the predicted pose should stop the robot before it passes the waypoint
+    double furthest = 0;
+    while (simulator.getClock().getSeconds() < 5) {
+      simulator.step();
+      furthest = Math.max(furthest, chassis.getTrueY());
+    }
+    assertTrue("Overshot to "+furthest, furthest <= 72);
+    assertEquals(72, chassis.getTrueY(), 1);
+    assertEquals(0, chassis.getTrueX(), 1);
+    tweetyBird.close();
+  }
+
+  @Test
+  public void settlesSoonerWithTunedController() {
+    double untuned = timeToSettle(0, 0);
+    double tuned = timeToSettle(0.04, 0.005);
+    assertTrue("Tuned "+tuned+" untuned "+untuned, tuned < untuned*0.9);
+  }
+
+  @Test
+  public void repeatable() {
+    double[] first = runSquare(7, false);
+    double[] second = runSquare(7, false);
+    for (int i = 0; i < first.length; i++) {
+      assertEquals(first[i], second[i], 0);
+    }
+  }
+
+  @Test
+  public void pipelineMatchesSerial() {
+    // Stepping the pipeline runs the same reads in the same order as the serial runtime
+    double[] serial = runSquare(8, false);
+    double[] pipelined = runSquare(8, true);
+    for (int i = 0; i < serial.length; i++) {
+      assertEquals(serial[i], pipelined[i], 0);
+    }
+  }
+
+  /**
+   * Drives a two waypoint path with the default controller's translation gains
+   * @param kP Translation proportional gain
+   * @param kD Translation derivative gain
+   * @return Seconds until the robot stopped on the last waypoint
+   */
+  private double timeToSettle(double kP, double kD) {
+    SimulatedMecanum chassis = new SimulatedMecanum.Builder()
+        .setMotorTimeConstant(0.1)
+        .setSeed(5)
+        .build();
+    Simulator simulator = new Simulator(chassis, new TweetyBird.Builder()
+        .setMinimumSpeed(0.1)
+        .setMaximumSpeed(0.8)
+        .setTranslationPIDF(kP, 0, kD, 1), 100);
+    TweetyBird tweetyBird = simulator.getTweetyBird();
+    tweetyBird.engage();
+    tweetyBird.addWaypoint(0, 72, 0);
+    tweetyBird.addWaypoint(24, 72, 90);
+
+    assertTrue(simulator.runUntilIdle(30));
+    assertEquals(24, chassis.getTrueX(), 3);
+    assertEquals(72, chassis.getTrueY(), 3);
+    tweetyBird.close();
+    return simulator.getClock().getSeconds();
+  }
+
+  /**
+   * Drives a square and returns where the robot ended up
+   * @param seed Noise seed
+   * @param pipelineEnabled Whether to localize in a separate stage
+   * @return Final x, y, z, and simulated time
+   */
+  private double[] runSquare(long seed, boolean pipelineEnabled) {
+    Simulator simulator = createSimulator(seed, pipelineEnabled);
+    TweetyBird tweetyBird = simulator.getTweetyBird();
+    tweetyBird.engage();
+    tweetyBird.addWaypoint(0, 24, 0);
+    tweetyBird.addWaypoint(24, 24, 0);
+    tweetyBird.addWaypoint(24, 0, 0);
+    tweetyBird.addWaypoint(0, 0, 0);
+    simulator.runUntilIdle(60);
+    SimulatedMecanum chassis = simulator.getChassis();
+    tweetyBird.close();
+    return new double[] {chassis.getTrueX(), chassis.getTrueY(), chassis.getTrueZ(),
+        simulator.getClock().getSeconds()};
+  }
+}